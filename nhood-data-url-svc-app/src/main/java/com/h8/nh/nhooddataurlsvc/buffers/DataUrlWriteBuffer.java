@@ -0,0 +1,414 @@
+package com.h8.nh.nhooddataurlsvc.buffers;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlWriteBehindProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics.PREFIX;
+
+/**
+ * Write-behind buffer for new entries. A create takes an id from a block
+ * reserved ahead in the entry sequence, so its location is known at once,
+ * and is put on a bounded {@link DataUrlWriteQueue} instead of being
+ * inserted. One flusher thread drains the queue in batches of
+ * {@code nhood.data-url.write-behind.batch-size} and stores each batch in
+ * one transaction with the function registered with {@link #flushTo}. Only
+ * that store is retried; once it has committed, the stored entries are
+ * handed to the publisher exactly once. The flusher runs once a batch is full, and at least every
+ * {@code flush-interval} while anything is queued.
+ *
+ * <p>Entries become readable once their batch is flushed. When the queue is
+ * full, or the buffer is closed, {@link #offer} refuses the entry and the
+ * caller writes it through instead. A batch that fails because the
+ * database is unavailable is retried until it goes through, or until the
+ * shutdown timeout passes while closing. A batch that fails for any other
+ * reason {@code maximum-attempts} times is split in halves, which are
+ * flushed the same way, so an entry that can never be stored is isolated
+ * and dropped without holding back the others. Dropped entries are logged
+ * and counted.
+ *
+ * <p>An update or delete of a queued entry has to wait for its create to be
+ * flushed, or it would find no row and the entry would appear afterwards.
+ * {@link #awaitFlushed} has the flusher run at once and waits until the
+ * entry is stored or dropped, up to {@code flush-wait-timeout}.
+ *
+ * <p>The buffer is closed when the application context starts closing,
+ * before any bean is destroyed: it stops taking entries and flushes all
+ * queued ones. When disabled the buffer refuses everything.
+ */
+@Slf4j
+@Component
+public class DataUrlWriteBuffer implements DisposableBean {
+
+    static final String QUEUED = PREFIX + ".write_behind.queued";
+
+    static final String BATCHES = PREFIX + ".write_behind.batch";
+
+    static final String OVERFLOWS = PREFIX + ".write_behind.overflows";
+
+    static final String FAILURES = PREFIX + ".write_behind.failures";
+
+    static final String DROPPED = PREFIX + ".write_behind.dropped";
+
+    private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final int maximumAttempts;
+
+    private final long flushWaitTimeoutNanos;
+
+    private final long shutdownTimeoutNanos;
+
+    private final DataUrlRepository repository;
+
+    private final DataUrlWriteQueue<DataUrl> queue;
+
+    private final AtomicReference<IdBlock> ids = new AtomicReference<>(new IdBlock(1, 0));
+
+    private final AtomicInteger offering = new AtomicInteger();
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final DistributionSummary batches;
+
+    private final Counter overflows;
+
+    private final Counter failures;
+
+    private final Counter dropped;
+
+    private volatile boolean closed;
+
+    private volatile Thread flusher;
+
+    @Autowired
+    public DataUrlWriteBuffer(
+            DataUrlWriteBehindProperties properties,
+            DataUrlRepository repository,
+            MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.maximumAttempts = properties.getMaximumAttempts();
+        this.flushWaitTimeoutNanos = properties.getFlushWaitTimeout().toNanos();
+        this.shutdownTimeoutNanos = properties.getShutdownTimeout().toNanos();
+        this.repository = repository;
+        this.queue = new DataUrlWriteQueue<>(enabled ? properties.getCapacity() : 1);
+        if (enabled) {
+            Gauge.builder(QUEUED, queue, DataUrlWriteQueue::size)
+                    .description("Entries waiting in the write-behind buffer")
+                    .register(registry);
+        }
+        this.batches = DistributionSummary.builder(BATCHES)
+                .description("Entries inserted per write-behind flush")
+                .register(registry);
+        this.overflows = Counter.builder(OVERFLOWS)
+                .description("Creates written through because the write-behind buffer was full")
+                .register(registry);
+        this.failures = Counter.builder(FAILURES)
+                .description("Write-behind flushes that failed and were retried")
+                .register(registry);
+        this.dropped = Counter.builder(DROPPED)
+                .description("Buffered creates dropped because they could not be stored")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts flushing queued entries on a thread of its own: each batch is
+     * stored with {@code store}, retried as needed, and what it returns is
+     * passed to {@code publish} once. Only the first call has an effect.
+     */
+    public synchronized void flushTo(
+            Function<List<DataUrl>, List<DataUrl>> store,
+            Consumer<List<DataUrl>> publish) {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        var flush = new Flush(store, publish);
+        var thread = new Thread(() -> run(flush), "data-url-write-behind");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    /**
+     * Queues a copy of the entry with a reserved id and returns it, or
+     * nothing if the buffer is disabled, closed or full.
+     */
+    public Optional<DataUrl> offer(DataUrl entry) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        offering.incrementAndGet();
+        try {
+            if (closed || flusher == null) {
+                return Optional.empty();
+            }
+            var buffered = DataUrl.builder()
+                    .id(nextId())
+                    .key(entry.getKey())
+                    .url(entry.getUrl())
+                    .lastModified(Instant.now())
+                    .build();
+            pending.add(buffered.getId());
+            if (!queue.offer(buffered)) {
+                pending.remove(buffered.getId());
+                overflows.increment();
+                return Optional.empty();
+            }
+            if (queue.size() >= batchSize) {
+                LockSupport.unpark(flusher);
+            }
+            return Optional.of(buffered);
+        } finally {
+            offering.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until the entry queued under {@code id}, if any, is flushed or
+     * dropped. Fails with {@link TransientDataAccessResourceException} if it
+     * is still queued after {@code flush-wait-timeout}.
+     */
+    public void awaitFlushed(Long id) {
+        if (!pending.contains(id)) {
+            return;
+        }
+        var thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        var deadline = System.nanoTime() + flushWaitTimeoutNanos;
+        synchronized (pending) {
+            while (pending.contains(id)) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TransientDataAccessResourceException(
+                            String.format("Entry %d is still waiting to be stored", id));
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransientDataAccessResourceException(
+                            String.format("Interrupted waiting for entry %d to be stored", id), e);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stops taking entries and waits for the queued ones to be flushed, up
+     * to the shutdown timeout.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void close() throws InterruptedException {
+        closed = true;
+        var thread = flusher;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.NANOSECONDS.toMillis(shutdownTimeoutNanos) + 1);
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        close();
+    }
+
+    private void run(Flush flush) {
+        var batch = new ArrayList<DataUrl>(batchSize);
+        while (!closed) {
+            if (queue.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            flushQueued(flush, batch, Long.MAX_VALUE);
+        }
+        var deadline = System.nanoTime() + shutdownTimeoutNanos;
+        while (offering.get() > 0 || queue.size() > 0) {
+            if (!flushQueued(flush, batch, deadline)) {
+                log.error("Write-behind buffer closed with {} entries not stored", queue.size() + batch.size());
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Flushes everything queued, batch by batch. Returns false if a batch
+     * still failed at the deadline.
+     */
+    private boolean flushQueued(Flush flush, List<DataUrl> batch, long deadline) {
+        while (batch.size() > 0 || queue.drain(batch, batchSize) > 0) {
+            if (!flushBatch(flush, batch, deadline)) {
+                return false;
+            }
+            settled(batch);
+            batch.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Stores a batch, retrying the store while it fails, and publishes it
+     * once stored. A batch that keeps failing for a reason other than the
+     * database being unavailable is split, and a single entry that does is
+     * dropped. Returns false if the batch still failed at the deadline.
+     */
+    private boolean flushBatch(Flush flush, List<DataUrl> batch, long deadline) {
+        List<DataUrl> stored = null;
+        for (int attempt = 1; stored == null; attempt++) {
+            try {
+                stored = flush.store.apply(List.copyOf(batch));
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (!isUnavailable(e) && attempt >= maximumAttempts) {
+                    return isolate(flush, batch, deadline, e);
+                }
+                log.warn("Write-behind flush of {} entries failed, retrying", batch.size(), e);
+                if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, Math.max(flushIntervalNanos, RETRY_NANOS));
+            }
+        }
+        batches.record(batch.size());
+        publish(flush, stored);
+        return true;
+    }
+
+    private boolean isolate(Flush flush, List<DataUrl> batch, long deadline, RuntimeException e) {
+        if (batch.size() == 1) {
+            var entry = batch.get(0);
+            dropped.increment();
+            log.error("Write-behind entry {} with key {} dropped, it could not be stored",
+                    entry.getId(), entry.getKey(), e);
+            return true;
+        }
+        log.warn("Write-behind flush of {} entries failed {} times, splitting it", batch.size(), maximumAttempts, e);
+        var half = batch.size() / 2;
+        return flushBatch(flush, batch.subList(0, half), deadline)
+                && flushBatch(flush, batch.subList(half, batch.size()), deadline);
+    }
+
+    /**
+     * Forgets the entries of a batch that was flushed, or dropped, and wakes
+     * whoever waits for them.
+     */
+    private void settled(List<DataUrl> batch) {
+        batch.forEach(l -> pending.remove(l.getId()));
+        synchronized (pending) {
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Hands stored entries to the publisher. They are in the table already,
+     * so a failure here is logged and never retried.
+     */
+    private void publish(Flush flush, List<DataUrl> stored) {
+        try {
+            flush.publish.accept(stored);
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush of {} entries stored but could not be published", stored.size(), e);
+        }
+    }
+
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    /**
+     * Takes the next id of the current block, reserving a new block once it
+     * is used up. Ids are handed out without locking; only reserving a
+     * block is serialized.
+     */
+    private long nextId() {
+        while (true) {
+            var block = ids.get();
+            var id = block.next.getAndIncrement();
+            if (id <= block.last) {
+                return id;
+            }
+            synchronized (ids) {
+                if (ids.get() == block) {
+                    var first = repository.allocateIds();
+                    ids.set(new IdBlock(first, first + DataUrl.ID_ALLOCATION_SIZE - 1));
+                }
+            }
+        }
+    }
+
+    private static final class Flush {
+
+        private final Function<List<DataUrl>, List<DataUrl>> store;
+
+        private final Consumer<List<DataUrl>> publish;
+
+        Flush(Function<List<DataUrl>, List<DataUrl>> store, Consumer<List<DataUrl>> publish) {
+            this.store = store;
+            this.publish = publish;
+        }
+    }
+
+    private static final class IdBlock {
+
+        private final AtomicLong next;
+
+        private final long last;
+
+        IdBlock(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
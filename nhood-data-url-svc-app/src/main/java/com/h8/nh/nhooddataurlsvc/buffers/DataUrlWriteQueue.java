@@ -0,0 +1,81 @@
+package com.h8.nh.nhooddataurlsvc.buffers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue of many producers and a single consumer, on a ring of slots
+ * sized to a power of two. Producers claim a position by advancing the tail
+ * with a compare-and-set and then fill the slot, so offering never blocks
+ * and never takes a lock; a full queue refuses the element instead. The
+ * consumer takes filled slots in order and frees each before moving on, so a
+ * slot a producer claims is always empty.
+ *
+ * <p>A slot that is claimed but not yet filled stops the consumer until the
+ * producer has written it; elements are never skipped or reordered.
+ */
+class DataUrlWriteQueue<E> {
+
+    private final AtomicReferenceArray<E> slots;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+
+    DataUrlWriteQueue(int capacity) {
+        var size = Integer.highestOneBit(Math.max(1, capacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Adds the element unless the queue is full. Safe to call from any
+     * number of threads.
+     */
+    boolean offer(E element) {
+        while (true) {
+            var position = tail.get();
+            if (position - head.get() >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.lazySet((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code limit} elements to {@code target} in the order they
+     * were offered and returns how many were moved. Only one thread may
+     * drain.
+     */
+    int drain(List<? super E> target, int limit) {
+        var position = head.get();
+        var drained = 0;
+        while (drained < limit) {
+            var index = (int) position & mask;
+            var element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            slots.lazySet(index, null);
+            position++;
+            drained++;
+            head.lazySet(position);
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,165 @@
+package com.h8.nh.nhooddataurlsvc.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCacheProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of response DTOs by id. Eviction is Caffeine's
+ * size-based W-TinyLFU policy combined with expiry after write. Misses are
+ * not cached, so an id is never reported missing after it has been created.
+ * When disabled every call goes straight to the loader.
+ *
+ * <p>Each value is cached with the version the version index held when its
+ * load started, and it is served only while the index still holds that
+ * version. A load that read an entry just before an update or delete, and
+ * puts it after the write has invalidated it, is never served once the
+ * write has been published. Entries the index does not know are not cached.
+ */
+@Component
+public class DataUrlCache {
+
+    static final String NAME = "dataUrls";
+
+    private final Cache<Long, Cached> cache;
+
+    private final DataUrlVersionIndex versionIndex;
+
+    @Autowired
+    public DataUrlCache(
+            DataUrlCacheProperties properties,
+            DataUrlVersionIndex versionIndex,
+            MeterRegistry registry) {
+        this.versionIndex = versionIndex;
+        if (properties.isEnabled()) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaximumSize())
+                    .expireAfterWrite(properties.getExpireAfterWrite())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(registry, cache, NAME);
+        } else {
+            cache = null;
+        }
+    }
+
+    public Optional<DataUrlResponseDTO> getIfPresent(Long id) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current(id, cache.getIfPresent(id)));
+    }
+
+    public Optional<DataUrlResponseDTO> get(Long id, Function<Long, Optional<DataUrlResponseDTO>> loader) {
+        var cached = getIfPresent(id);
+        return cached.isPresent() ? cached : load(id, loader);
+    }
+
+    /**
+     * Loads an entry after a miss and caches it. The cache is checked again
+     * first, without counting a second miss, as another load of the id may
+     * have finished in the meantime.
+     */
+    public Optional<DataUrlResponseDTO> load(Long id, Function<Long, Optional<DataUrlResponseDTO>> loader) {
+        if (cache == null) {
+            return loader.apply(id);
+        }
+        var cached = current(id, cache.asMap().get(id));
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        var version = versionIndex.find(id);
+        var loaded = loader.apply(id);
+        loaded.ifPresent(l -> put(id, version, l));
+        return loaded;
+    }
+
+    public Map<Long, DataUrlResponseDTO> getAll(
+            List<Long> ids,
+            Function<List<Long>, Map<Long, DataUrlResponseDTO>> loader) {
+        if (cache == null) {
+            return loader.apply(ids);
+        }
+        var result = new HashMap<Long, DataUrlResponseDTO>();
+        cache.getAllPresent(ids).forEach((id, cached) -> {
+            var value = current(id, cached);
+            if (value != null) {
+                result.put(id, value);
+            }
+        });
+        var versions = new LinkedHashMap<Long, Optional<DataUrlVersion>>();
+        for (var id : ids) {
+            if (!result.containsKey(id)) {
+                versions.put(id, versionIndex.find(id));
+            }
+        }
+        if (!versions.isEmpty()) {
+            var loaded = loader.apply(new ArrayList<>(versions.keySet()));
+            loaded.forEach((id, value) -> put(id, versions.get(id), value));
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void invalidate(Long id) {
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private void put(Long id, Optional<DataUrlVersion> version, DataUrlResponseDTO value) {
+        if (version.isPresent() && isCurrent(id, version.get().getVersion())) {
+            cache.put(id, new Cached(version.get().getVersion(), value));
+        }
+    }
+
+    private DataUrlResponseDTO current(Long id, Cached cached) {
+        if (cached == null) {
+            return null;
+        }
+        if (!isCurrent(id, cached.version)) {
+            cache.asMap().remove(id, cached);
+            return null;
+        }
+        return cached.value;
+    }
+
+    private boolean isCurrent(Long id, long version) {
+        return versionIndex.find(id)
+                .map(l -> l.getVersion() == version)
+                .orElse(false);
+    }
+
+    private static final class Cached {
+
+        private final long version;
+
+        private final DataUrlResponseDTO value;
+
+        Cached(long version, DataUrlResponseDTO value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.h8.nh.nhooddataurlsvc.caches;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCoalescingProperties;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Coalesces identical reads that reach the database at the same time: an
+ * id, a set of ids missing from the cache, and a page. Each write forgets
+ * the loads it may have changed, so a read that starts after a write has
+ * been published never shares a load from before it.
+ */
+@Component
+public class DataUrlReadFlights {
+
+    private final DataUrlSingleFlight<Long, Optional<DataUrlResponseDTO>> byId;
+
+    private final DataUrlSingleFlight<List<Long>, Map<Long, DataUrlResponseDTO>> byIds;
+
+    private final DataUrlSingleFlight<String, List<DataUrlResponseDTO>> pages;
+
+    @Autowired
+    public DataUrlReadFlights(
+            DataUrlCoalescingProperties properties,
+            MeterRegistry registry) {
+        var enabled = properties.isEnabled();
+        var waitTimeout = properties.getWaitTimeout();
+        this.byId = new DataUrlSingleFlight<>("findById", enabled, waitTimeout, registry);
+        this.byIds = new DataUrlSingleFlight<>("findAllById", enabled, waitTimeout, registry);
+        this.pages = new DataUrlSingleFlight<>("findPage", enabled, waitTimeout, registry);
+    }
+
+    public Optional<DataUrlResponseDTO> findById(
+            Long id,
+            Function<Long, Optional<DataUrlResponseDTO>> loader) {
+        return byId.load(id, loader);
+    }
+
+    public Map<Long, DataUrlResponseDTO> findAllById(
+            List<Long> ids,
+            Function<List<Long>, Map<Long, DataUrlResponseDTO>> loader) {
+        return byIds.load(List.copyOf(ids), l -> Collections.unmodifiableMap(loader.apply(l)));
+    }
+
+    public List<DataUrlResponseDTO> findPage(
+            Long after,
+            int limit,
+            BiFunction<Long, Integer, List<DataUrlResponseDTO>> loader) {
+        return pages.load(after + "/" + limit, l -> Collections.unmodifiableList(loader.apply(after, limit)));
+    }
+
+    /**
+     * Forgets the loads running that may read entry {@code id}: the ones of
+     * the id itself, and all loads of several ids and of pages.
+     */
+    public void forget(Long id) {
+        byId.forget(id);
+        byIds.forgetAll();
+        pages.forgetAll();
+    }
+}
@@ -0,0 +1,142 @@
+package com.h8.nh.nhooddataurlsvc.caches;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics.PREFIX;
+
+/**
+ * Runs at most one load per key at a time. The first caller of a key runs
+ * the loader; callers that arrive while it runs wait for it and share its
+ * result, or its exception. The key is released before the result is
+ * handed out, so a caller that arrives afterwards starts a new load.
+ * Callers wait up to {@code wait-timeout} and then fail with
+ * {@link TransientDataAccessResourceException} rather than queue behind a
+ * load that hangs; the load itself goes on.
+ *
+ * <p>{@link #forget} releases a key while its load runs, for when a write
+ * may have changed what that load reads. Callers that joined the load
+ * already still share its result; later ones start over.
+ *
+ * <p>Calls, the calls that shared another caller's load and the ones that
+ * gave up waiting are counted per method, together with a gauge of the
+ * share of calls deduplicated. When
+ * disabled every call runs the loader itself.
+ */
+class DataUrlSingleFlight<K, V> {
+
+    static final String CALLS = PREFIX + ".single_flight.calls";
+
+    static final String SHARED = PREFIX + ".single_flight.shared";
+
+    static final String DEDUPLICATION = PREFIX + ".single_flight.deduplication";
+
+    static final String TIMEOUTS = PREFIX + ".single_flight.timeouts";
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final long waitTimeoutNanos;
+
+    private final Counter calls;
+
+    private final Counter shared;
+
+    private final Counter timeouts;
+
+    DataUrlSingleFlight(String method, boolean enabled, Duration waitTimeout, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.calls = Counter.builder(CALLS)
+                .description("Loads requested through single flight")
+                .tag("method", method)
+                .register(registry);
+        this.shared = Counter.builder(SHARED)
+                .description("Loads that shared a load already running for the same key")
+                .tag("method", method)
+                .register(registry);
+        this.timeouts = Counter.builder(TIMEOUTS)
+                .description("Loads that gave up waiting for a load already running for the same key")
+                .tag("method", method)
+                .register(registry);
+        Gauge.builder(DEDUPLICATION, this, DataUrlSingleFlight::deduplication)
+                .description("Share of loads that shared a load already running for the same key")
+                .tag("method", method)
+                .register(registry);
+    }
+
+    V load(K key, Function<K, V> loader) {
+        calls.increment();
+        if (!enabled) {
+            return loader.apply(key);
+        }
+        var flight = new CompletableFuture<V>();
+        var running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            shared.increment();
+            return join(key, running);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    void forget(K key) {
+        if (enabled && key != null) {
+            flights.remove(key);
+        }
+    }
+
+    void forgetAll() {
+        if (enabled && !flights.isEmpty()) {
+            flights.clear();
+        }
+    }
+
+    double deduplication() {
+        var count = calls.count();
+        return count == 0 ? 0 : shared.count() / count;
+    }
+
+    private V join(K key, CompletableFuture<V> flight) {
+        try {
+            return flight.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new TransientDataAccessResourceException(
+                    String.format("Load of %s is still running", key));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException(
+                    String.format("Interrupted waiting for load of %s", key), e);
+        }
+    }
+}
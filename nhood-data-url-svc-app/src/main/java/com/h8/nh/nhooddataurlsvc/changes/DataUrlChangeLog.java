@@ -0,0 +1,186 @@
+package com.h8.nh.nhooddataurlsvc.changes;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlChangeLogProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-memory, sequenced log of changes made through the service, read by
+ * replicas that sync incrementally from a snapshot.
+ *
+ * <p>The log is compacted as it is written: only the latest change of each
+ * entry is kept, which is all a replica needs to converge from any sequence
+ * number. Beyond {@code nhood.data-url.changes.maximum-size} the oldest
+ * changes are dropped, and readers that are further behind than that are
+ * told to take a new snapshot.
+ *
+ * <p>Subscriptions are delivered on a pool of at most
+ * {@code nhood.data-url.changes.maximum-subscribers} threads, one per
+ * subscriber at most, and subscribing beyond that many subscribers is
+ * refused with {@link DataUrlSubscriptionRejectedException}.
+ *
+ * <p>Sequence numbers carry a random epoch of the process in their upper
+ * bits and count changes in the lower ones, so they do not depend on the
+ * clock. A sequence number from another process, before or after a
+ * restart, falls either below the start of the log or above its latest
+ * change, and either way the reader is told to take a new snapshot.
+ */
+@Component
+public class DataUrlChangeLog implements DisposableBean {
+
+    private static final int EPOCH_SHIFT = 41;
+
+    private static final int EPOCHS = 1 << 22;
+
+    private final ConcurrentNavigableMap<Long, DataUrlChange> changes = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Long> latest = new HashMap<>();
+
+    private final List<DataUrlChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final int maximumSize;
+
+    private final int maximumSubscribers;
+
+    private int size;
+
+    private volatile long sequence;
+
+    private volatile long floor;
+
+    @Autowired
+    DataUrlChangeLog(DataUrlChangeLogProperties properties) {
+        this(properties.getMaximumSize(), properties.getMaximumSubscribers(),
+                (long) ThreadLocalRandom.current().nextInt(1, EPOCHS) << EPOCH_SHIFT);
+    }
+
+    DataUrlChangeLog(int maximumSize, int maximumSubscribers, long start) {
+        this.maximumSize = maximumSize;
+        this.maximumSubscribers = maximumSubscribers;
+        this.sequence = start;
+        this.floor = start;
+        var threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                maximumSubscribers, maximumSubscribers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maximumSubscribers), l -> {
+            var thread = new Thread(l, "data-url-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sequence number of the latest change. Everything a reader sees after
+     * taking it is either reflected in a snapshot read afterwards or appended
+     * with a higher number.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    public void upserted(DataUrl entry) {
+        append(DataUrlChange.Type.UPSERT, entry.getId(), entry.getKey(), entry.getUrl(), entry.getVersion());
+    }
+
+    public void deleted(Long id) {
+        append(DataUrlChange.Type.DELETE, id, null, null, null);
+    }
+
+    /**
+     * Returns up to {@code limit} changes after {@code since} in sequence
+     * order, or nothing if changes after {@code since} have been dropped or
+     * {@code since} is beyond the latest change, and the reader has to take
+     * a new snapshot.
+     */
+    public Optional<List<DataUrlChange>> findSince(long since, int limit) {
+        if (since > sequence) {
+            return Optional.empty();
+        }
+        var result = new ArrayList<DataUrlChange>(Math.min(limit, 64));
+        for (var change : changes.tailMap(since, false).values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(change);
+        }
+        return since < floor
+                ? Optional.empty()
+                : Optional.of(result);
+    }
+
+    /**
+     * Delivers changes after {@code since} to the consumer, first the ones
+     * already in the log and then new ones as they are appended. Delivery
+     * runs on a pool thread, never on the writer's. If the subscriber falls
+     * behind the retained changes, {@code onCompacted} is called instead and
+     * the subscription ends. Fails with
+     * {@link DataUrlSubscriptionRejectedException} if the log has
+     * {@code maximum-subscribers} subscribers already.
+     */
+    public DataUrlChangeSubscription subscribe(
+            long since,
+            Consumer<List<DataUrlChange>> consumer,
+            Runnable onCompacted) {
+        var subscription = new DataUrlChangeSubscription(this, since, consumer, onCompacted, executor);
+        synchronized (subscriptions) {
+            if (subscriptions.size() >= maximumSubscribers) {
+                throw new DataUrlSubscriptionRejectedException(maximumSubscribers);
+            }
+            subscriptions.add(subscription);
+        }
+        subscription.signal();
+        return subscription;
+    }
+
+    void unsubscribe(DataUrlChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void append(DataUrlChange.Type type, Long id, List<String> key, String url, Long version) {
+        synchronized (this) {
+            var change = new DataUrlChange(sequence + 1, type, id, key, url, version);
+            changes.put(change.getSequence(), change);
+            sequence = change.getSequence();
+            var superseded = latest.put(id, change.getSequence());
+            if (superseded != null) {
+                changes.remove(superseded);
+            } else {
+                size++;
+            }
+            while (size > maximumSize) {
+                var oldest = changes.firstEntry();
+                floor = oldest.getKey();
+                changes.remove(oldest.getKey());
+                latest.remove(oldest.getValue().getId(), oldest.getKey());
+                size--;
+            }
+        }
+        subscriptions.forEach(DataUrlChangeSubscription::signal);
+    }
+}
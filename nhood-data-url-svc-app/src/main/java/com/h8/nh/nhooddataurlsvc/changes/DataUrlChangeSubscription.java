@@ -0,0 +1,91 @@
+package com.h8.nh.nhooddataurlsvc.changes;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A reader of the change log that is pushed new changes. Appends only signal
+ * it; signals that arrive while a delivery is running are folded into one
+ * more pass over the log, so a burst of writes costs a slow subscriber a few
+ * large deliveries rather than one task per change. A consumer that throws
+ * ends the subscription.
+ */
+public class DataUrlChangeSubscription {
+
+    private static final int DELIVERY_SIZE = 1000;
+
+    private final DataUrlChangeLog log;
+
+    private final Consumer<List<DataUrlChange>> consumer;
+
+    private final Runnable onCompacted;
+
+    private final Executor executor;
+
+    private final AtomicInteger signals = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    private long delivered;
+
+    DataUrlChangeSubscription(
+            DataUrlChangeLog log,
+            long since,
+            Consumer<List<DataUrlChange>> consumer,
+            Runnable onCompacted,
+            Executor executor) {
+        this.log = log;
+        this.delivered = since;
+        this.consumer = consumer;
+        this.onCompacted = onCompacted;
+        this.executor = executor;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        log.unsubscribe(this);
+    }
+
+    void signal() {
+        if (!cancelled && signals.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+    }
+
+    private void drain() {
+        var missed = 1;
+        do {
+            deliver();
+            missed = signals.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver() {
+        try {
+            while (!cancelled) {
+                var changes = log.findSince(delivered, DELIVERY_SIZE).orElse(null);
+                if (changes == null) {
+                    cancel();
+                    onCompacted.run();
+                    return;
+                }
+                if (changes.isEmpty()) {
+                    return;
+                }
+                consumer.accept(changes);
+                delivered = changes.get(changes.size() - 1).getSequence();
+            }
+        } catch (RuntimeException e) {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.h8.nh.nhooddataurlsvc.changes;
+
+/**
+ * Thrown when a change log subscription is refused because the log already
+ * has {@code nhood.data-url.changes.maximum-subscribers} subscribers.
+ */
+public class DataUrlSubscriptionRejectedException extends RuntimeException {
+
+    public DataUrlSubscriptionRejectedException(int subscribers) {
+        super(String.format("The change log already has %d subscribers", subscribers));
+    }
+}
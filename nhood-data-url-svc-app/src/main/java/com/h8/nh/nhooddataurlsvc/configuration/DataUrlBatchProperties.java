@@ -0,0 +1,15 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.batch")
+public class DataUrlBatchProperties {
+
+    private int chunkSize = 500;
+
+    private int maximumSize = 10_000;
+
+    private int maximumImportErrors = 100;
+}
@@ -0,0 +1,17 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.cache")
+public class DataUrlCacheProperties {
+
+    private boolean enabled = true;
+
+    private long maximumSize = 100_000;
+
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
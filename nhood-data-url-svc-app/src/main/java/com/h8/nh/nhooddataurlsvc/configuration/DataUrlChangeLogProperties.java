@@ -0,0 +1,19 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.changes")
+public class DataUrlChangeLogProperties {
+
+    private int maximumSize = 100_000;
+
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    private int maximumSubscribers = 256;
+
+    private int streamBufferSize = 10_000;
+}
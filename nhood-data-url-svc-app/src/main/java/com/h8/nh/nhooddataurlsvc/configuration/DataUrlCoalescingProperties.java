@@ -0,0 +1,15 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.coalescing")
+public class DataUrlCoalescingProperties {
+
+    private boolean enabled = true;
+
+    private Duration waitTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,15 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.concurrency")
+public class DataUrlConcurrencyProperties {
+
+    private boolean stripedLocks;
+
+    private int stripes = 1024;
+
+    private int maximumAttempts = 3;
+}
@@ -0,0 +1,72 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import com.h8.nh.nhooddataurlsvc.execution.BoundedDataSource;
+import com.h8.nh.nhooddataurlsvc.execution.VirtualThreads;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Request execution mode, {@code nhood.data-url.execution.mode}. In virtual
+ * mode Tomcat and async MVC requests run on virtual threads. In both modes
+ * the data source is bounded to {@code connection-permits} open connections.
+ */
+@Configuration
+public class DataUrlExecutionConfiguration {
+
+    private static final String PREFIX = "nhood.data-url.execution";
+
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        var properties = Binder.get(environment)
+                .bind(PREFIX, DataUrlExecutionProperties.class)
+                .orElseGet(DataUrlExecutionProperties::new);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource
+                        && !(bean instanceof BoundedDataSource)
+                        && properties.getConnectionPermits() > 0) {
+                    return new BoundedDataSource((DataSource) bean,
+                            properties.getConnectionPermits(), properties.getPermitTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = PREFIX, name = "mode", havingValue = "virtual")
+    static class VirtualThreadConfiguration implements WebMvcConfigurer, DisposableBean {
+
+        private final ExecutorService executor = VirtualThreads.newExecutor();
+
+        @Bean
+        public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+            return factory -> factory.addConnectorCustomizers(
+                    connector -> connector.getProtocolHandler().setExecutor(executor));
+        }
+
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+
+        @Override
+        public void destroy() {
+            executor.shutdown();
+        }
+    }
+}
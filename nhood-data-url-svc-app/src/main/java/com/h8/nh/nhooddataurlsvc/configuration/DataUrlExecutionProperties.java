@@ -0,0 +1,22 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.execution")
+public class DataUrlExecutionProperties {
+
+    private Mode mode = Mode.PLATFORM;
+
+    private int connectionPermits = 10;
+
+    private Duration permitTimeout = Duration.ofSeconds(30);
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+}
@@ -0,0 +1,43 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
+import com.h8.nh.nhooddataurlsvc.metrics.TimedBeanPostProcessor;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlQueryRepository;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Service and repository timers, switched with
+ * {@code nhood.data-url.metrics.enabled}. When disabled no proxies are
+ * created and all {@code data_url} meters are denied.
+ */
+@Configuration
+public class DataUrlMetricsConfiguration {
+
+    static final String SERVICE_TIMER = DataUrlMetrics.PREFIX + ".service";
+
+    static final String REPOSITORY_TIMER = DataUrlMetrics.PREFIX + ".repository";
+
+    @Bean
+    @ConditionalOnProperty(prefix = "nhood.data-url.metrics", name = "enabled", matchIfMissing = true)
+    public static TimedBeanPostProcessor timedBeanPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new TimedBeanPostProcessor(registry, Map.of(
+                DataUrlService.class, SERVICE_TIMER,
+                DataUrlRepository.class, REPOSITORY_TIMER,
+                DataUrlQueryRepository.class, REPOSITORY_TIMER));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "nhood.data-url.metrics", name = "enabled", havingValue = "false")
+    public MeterFilter dataUrlMetricsFilter() {
+        return MeterFilter.denyNameStartsWith(DataUrlMetrics.PREFIX);
+    }
+}
@@ -0,0 +1,14 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.replica")
+public class DataUrlReplicaProperties {
+
+    private boolean enabled = false;
+
+    private DataSize chunkSize = DataSize.ofMegabytes(16);
+}
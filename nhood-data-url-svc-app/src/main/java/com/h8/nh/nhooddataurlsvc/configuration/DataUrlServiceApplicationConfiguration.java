@@ -1,6 +1,8 @@
 package com.h8.nh.nhooddataurlsvc.configuration;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -10,20 +12,30 @@ import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
-@EnableSwagger2
+@EnableConfigurationProperties({
+        DataUrlBatchProperties.class,
+        DataUrlCacheProperties.class,
+        DataUrlChangeLogProperties.class,
+        DataUrlCoalescingProperties.class,
+        DataUrlConcurrencyProperties.class,
+        DataUrlExecutionProperties.class,
+        DataUrlReplicaProperties.class,
+        DataUrlWriteBehindProperties.class})
 public class DataUrlServiceApplicationConfiguration {
 
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
+    @Configuration
+    @EnableSwagger2
+    @ConditionalOnProperty(prefix = "nhood.data-url.swagger", name = "enabled", matchIfMissing = true)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class SwaggerConfiguration {
 
-    @Bean
-    public Docket api() {
-        return new Docket(DocumentationType.SWAGGER_2)
-                .select()
-                .apis(RequestHandlerSelectors.basePackage("com.h8.nh"))
-                .paths(PathSelectors.any())
-                .build();
+        @Bean
+        public Docket api() {
+            return new Docket(DocumentationType.SWAGGER_2)
+                    .select()
+                    .apis(RequestHandlerSelectors.basePackage("com.h8.nh"))
+                    .paths(PathSelectors.any())
+                    .build();
+        }
     }
 }
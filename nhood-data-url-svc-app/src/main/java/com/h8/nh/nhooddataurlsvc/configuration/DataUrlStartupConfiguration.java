@@ -0,0 +1,31 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import com.h8.nh.nhooddataurlsvc.startup.LazyInitializationBeanFactoryPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup time switches. {@code nhood.data-url.startup.lazy-initialization}
+ * defers creating beans until they are first used, and
+ * {@code nhood.data-url.startup.exit-when-ready} stops the application once
+ * it has started, which is how the class data sharing archive is recorded.
+ */
+@Configuration
+public class DataUrlStartupConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "nhood.data-url.startup", name = "lazy-initialization", havingValue = "true")
+    public static LazyInitializationBeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+        return new LazyInitializationBeanFactoryPostProcessor();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "nhood.data-url.startup", name = "exit-when-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return l -> System.exit(SpringApplication.exit(l.getApplicationContext()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Smile next to JSON, negotiated with {@code Accept} and
+ * {@code Content-Type}. Spring registers a Smile converter after the JSON
+ * one as soon as Smile is on the classpath, so JSON stays the default; the
+ * servlet converter is switched to a mapper configured like the JSON one,
+ * with shared string values. The reactive default Smile codecs cannot be
+ * replaced in this Spring version and share field names only; streamed
+ * listings use the configured mapper on both stacks.
+ */
+@Configuration
+public class DataUrlWireFormatConfiguration {
+
+    @Bean
+    public DataUrlWireFormats dataUrlWireFormats(
+            ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        var smile = builder.factory(DataUrlWireFormats.smileFactory()).build();
+        return new DataUrlWireFormats(objectMapper, smile);
+    }
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletWireFormatConfiguration implements WebMvcConfigurer {
+
+        private final DataUrlWireFormats formats;
+
+        ServletWireFormatConfiguration(DataUrlWireFormats formats) {
+            this.formats = formats;
+        }
+
+        @Override
+        public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+            converters.stream()
+                    .filter(l -> l instanceof MappingJackson2SmileHttpMessageConverter)
+                    .forEach(l -> ((MappingJackson2SmileHttpMessageConverter) l).setObjectMapper(formats.getSmile()));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.h8.nh.nhooddataurlsvc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "nhood.data-url.write-behind")
+public class DataUrlWriteBehindProperties {
+
+    private boolean enabled = false;
+
+    private int capacity = 65_536;
+
+    private int batchSize = 500;
+
+    private Duration flushInterval = Duration.ofMillis(10);
+
+    private int maximumAttempts = 3;
+
+    private Duration flushWaitTimeout = Duration.ofSeconds(2);
+
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,72 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchReadResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Batch request handling shared by the servlet and reactive controllers.
+ */
+final class DataUrlBatchRequests {
+
+    private DataUrlBatchRequests() {
+    }
+
+    static List<String> validate(Validator validator, List<?> items, int maximumSize) {
+        var errors = new ArrayList<String>();
+        if (items.isEmpty() || items.size() > maximumSize) {
+            errors.add(String.format("Batch size should be between 1 and %d", maximumSize));
+            return errors;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            if (item == null) {
+                errors.add(String.format("[%d]: must not be null", i));
+                continue;
+            }
+            for (var violation : validator.validate(item)) {
+                errors.add(String.format("[%d].%s: %s",
+                        i, violation.getPropertyPath(), violation.getMessage()));
+            }
+        }
+        return errors;
+    }
+
+    static List<Long> notFound(List<Long> requested, List<Long> processed) {
+        var found = new HashSet<>(processed);
+        return requested.stream()
+                .filter(id -> !found.contains(id))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    static DataUrlBatchResponseDTO response(
+            List<Long> ids, List<Long> notFound, List<String> errors) {
+        var dto = new DataUrlBatchResponseDTO();
+        dto.setIds(ids);
+        dto.setNotFound(notFound);
+        dto.setErrors(errors);
+        return dto;
+    }
+
+    static List<Long> ids(List<DataUrlResponseDTO> entries) {
+        return entries.stream()
+                .map(DataUrlResponseDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+    static DataUrlBatchReadResponseDTO readResponse(
+            List<DataUrlResponseDTO> urls, List<Long> notFound, List<String> errors) {
+        var dto = new DataUrlBatchReadResponseDTO();
+        dto.setUrls(urls);
+        dto.setNotFound(notFound);
+        dto.setErrors(errors);
+        return dto;
+    }
+}
@@ -0,0 +1,51 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangesResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Change feed handling shared by the servlet and reactive controllers.
+ */
+final class DataUrlChangeRequests {
+
+    /**
+     * Sequence number a snapshot read from {@code GET /urls} is consistent
+     * with; replicas pass it as {@code since} to pick up later changes.
+     */
+    static final String SEQUENCE_HEADER = "X-Change-Sequence";
+
+    /**
+     * Last event of a stream whose subscriber fell behind the retained
+     * changes and has to take a new snapshot.
+     */
+    static final String COMPACTED_EVENT = "compacted";
+
+    private DataUrlChangeRequests() {
+    }
+
+    /**
+     * Starts live streams at the current sequence unless the client asks
+     * for a position, preferring the id of the last event it received.
+     */
+    static long streamStart(Long since, Long lastEventId, long current) {
+        if (lastEventId != null) {
+            return lastEventId;
+        }
+        return since != null ? since : current;
+    }
+
+    static DataUrlChangesResponseDTO response(long since, List<DataUrlChange> changes) {
+        var dto = new DataUrlChangesResponseDTO();
+        dto.setChanges(changes.stream()
+                .map(DataUrlMapper::toChangeDTO)
+                .collect(Collectors.toList()));
+        dto.setSequence(changes.isEmpty()
+                ? since
+                : changes.get(changes.size() - 1).getSequence());
+        return dto;
+    }
+}
@@ -1,52 +1,261 @@
 package com.h8.nh.nhooddataurlsvc.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlSubscriptionRejectedException;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlBatchProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlChangeLogProperties;
 import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlModifyRequestDTO;
 import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchReadResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangesResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlImportResponseDTO;
 import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
 import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/urls")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class DataUrlController {
 
-    private final ModelMapper mapper;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
+    private final DataUrlWireFormats formats;
+
+    private final Validator validator;
 
     private final DataUrlService service;
 
+    private final DataUrlBatchProperties batchProperties;
+
+    private final DataUrlChangeLogProperties changeLogProperties;
+
+    private final DataUrlMetrics metrics;
+
     @Autowired
     public DataUrlController(
-            ModelMapper mapper,
-            DataUrlService service) {
-        this.mapper = mapper;
+            DataUrlWireFormats formats,
+            Validator validator,
+            DataUrlService service,
+            DataUrlBatchProperties batchProperties,
+            DataUrlChangeLogProperties changeLogProperties,
+            DataUrlMetrics metrics) {
+        this.formats = formats;
+        this.validator = validator;
         this.service = service;
+        this.batchProperties = batchProperties;
+        this.changeLogProperties = changeLogProperties;
+        this.metrics = metrics;
     }
 
     @GetMapping
     @ResponseBody
-    public ResponseEntity<Iterable<DataUrlResponseDTO>> findAll() {
-        return ResponseEntity.ok(service.findAll()
-                .stream()
-                .map(l -> mapper.map(l, DataUrlResponseDTO.class))
-                .collect(Collectors.toList()));
+    public ResponseEntity<StreamingResponseBody> findAll(WebRequest request) {
+        var mediaType = formats.negotiate(MediaType.parseMediaTypes(request.getHeader(HttpHeaders.ACCEPT)));
+        var tag = DataUrlVersionRequests.etag(service.collectionTag(), mediaType,
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        var lastModified = service.collectionLastModified().toEpochMilli();
+        if (request.checkNotModified(tag, lastModified)) {
+            return null;
+        }
+        var mapper = formats.mapperFor(mediaType);
+        var sequence = service.changeSequence();
+        StreamingResponseBody body = out -> {
+            var generator = mapper.getFactory().createGenerator(out);
+            generator.writeStartArray();
+            service.findAll(l -> write(generator, l));
+            generator.writeEndArray();
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .eTag(tag)
+                .lastModified(lastModified)
+                .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence))
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(mediaType)
+                .body(body);
+    }
+
+    /**
+     * Writes every entry as one line of JSON, straight from a database
+     * cursor.
+     */
+    @GetMapping(value = "/export", produces = DataUrlWireFormats.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportAll() {
+        var mapper = formats.mapperFor(MediaType.APPLICATION_JSON);
+        var sequence = service.changeSequence();
+        StreamingResponseBody body = out -> {
+            var generator = mapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            service.findAll(l -> writeLine(generator, l));
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence))
+                .contentType(MediaType.valueOf(DataUrlWireFormats.APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseBody
+    public ResponseEntity<List<DataUrlResponseDTO>> findPage(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().build();
+        }
+        var sequence = service.changeSequence();
+        var page = service.findPage(after, limit);
+        var response = ResponseEntity.ok()
+                .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence));
+        if (page.size() == limit) {
+            var next = page.get(page.size() - 1).getId();
+            response.header(HttpHeaders.LINK,
+                    String.format("</urls?after=%d&limit=%d>; rel=\"next\"", next, limit));
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Reads the entries of up to {@code nhood.data-url.batch.maximum-size}
+     * comma-separated ids in one round trip, in the order asked for. Only
+     * ids missing from the cache are queried. Ids without an entry are
+     * listed under {@code notFound}.
+     */
+    @GetMapping(params = {"ids", "!limit"})
+    @ResponseBody
+    public ResponseEntity<DataUrlBatchReadResponseDTO> findAllById(
+            @RequestParam List<Long> ids) {
+        return readAll(ids);
+    }
+
+    /**
+     * Same as {@code GET /urls?ids=}, for lists of ids too long for a URL.
+     */
+    @PostMapping("/batch/read")
+    @ResponseBody
+    public ResponseEntity<DataUrlBatchReadResponseDTO> readAll(
+            @RequestBody List<Long> ids) {
+        var errors = validate(ids);
+        if (!errors.isEmpty()) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().body(readResponse(List.of(), List.of(), errors));
+        }
+        var found = service.findAllById(ids);
+        return ResponseEntity.ok(readResponse(found, DataUrlBatchRequests.notFound(ids,
+                DataUrlBatchRequests.ids(found)), List.of()));
+    }
+
+    @GetMapping(value = "/changes", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<DataUrlChangesResponseDTO> findChanges(
+            @RequestParam long since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().build();
+        }
+        return service.findChanges(since, limit)
+                .map(l -> ResponseEntity.ok(DataUrlChangeRequests.response(since, l)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.GONE).build());
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        var emitter = new SseEmitter(changeLogProperties.getStreamTimeout().toMillis());
+        var subscription = service.subscribeToChanges(
+                DataUrlChangeRequests.streamStart(since, lastEventId, service.changeSequence()),
+                l -> l.forEach(change -> send(emitter, change)),
+                () -> compacted(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    @GetMapping("/lookup")
+    @ResponseBody
+    public ResponseEntity<List<DataUrlResponseDTO>> lookup(
+            @RequestParam List<String> key,
+            @RequestParam(defaultValue = "false") boolean prefix) {
+        return ResponseEntity.ok(prefix
+                ? service.findByKeyPrefix(key)
+                : service.findByKey(key));
     }
 
+    /**
+     * Lists the key tree at the key given as path segments below
+     * {@code /urls/tree}, or with {@code longest} at the longest key with
+     * entries that the path starts with.
+     */
+    @GetMapping("/tree/**")
+    @ResponseBody
+    public ResponseEntity<DataUrlTreeResponseDTO> findTree(
+            @RequestParam(defaultValue = "false") boolean longest,
+            HttpServletRequest request) {
+        var key = DataUrlTreeRequests.key(request.getRequestURI());
+        return (longest ? service.findTreeByLongestPrefix(key) : service.findTree(key))
+                .map(ResponseEntity::ok)
+                .orElseGet(this::notFound);
+    }
+
+    /**
+     * Answers a matching {@code If-None-Match} or {@code If-Modified-Since}
+     * from the version index, without loading the entry.
+     */
     @GetMapping("/{id}")
     @ResponseBody
     public ResponseEntity<DataUrlResponseDTO> findById(
-            @PathVariable Long id) {
+            @PathVariable Long id, WebRequest request) {
+        var version = service.findVersion(id).orElse(null);
+        var tag = version == null ? null : DataUrlVersionRequests.etag(version.getVersion(),
+                formats.negotiate(MediaType.parseMediaTypes(request.getHeader(HttpHeaders.ACCEPT))),
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (version != null && request.checkNotModified(
+                tag, version.getLastModified().toEpochMilli())) {
+            return null;
+        }
         return service.findById(id)
-                .map(l -> mapper.map(l, DataUrlResponseDTO.class))
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+                .map(l -> ok(l, version, tag))
+                .orElseGet(this::notFound);
     }
 
     @PostMapping
@@ -54,20 +263,85 @@ public class DataUrlController {
     public ResponseEntity create(
             @Valid @RequestBody DataUrlRequestDTO dto)
             throws URISyntaxException {
-        var entry = mapper.map(dto, DataUrl.class);
+        var entry = DataUrlMapper.toDataUrl(dto);
         var result = service.create(entry);
         return ResponseEntity.created(
                 new URI("/urls/" + result.getId())).build();
     }
 
+    @PostMapping("/batch")
+    @ResponseBody
+    public ResponseEntity<DataUrlBatchResponseDTO> createAll(
+            @RequestBody List<DataUrlRequestDTO> dtos) {
+        var errors = validate(dtos);
+        if (!errors.isEmpty()) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().body(batchResponse(List.of(), List.of(), errors));
+        }
+        var entries = dtos.stream()
+                .map(DataUrlMapper::toDataUrl)
+                .collect(Collectors.toList());
+        var created = service.createAll(entries)
+                .stream()
+                .map(DataUrl::getId)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(batchResponse(created, List.of(), List.of()));
+    }
+
+    /**
+     * Reads one entry per line and creates the valid ones in chunks of
+     * {@code nhood.data-url.batch.chunk-size}, as the body arrives. Invalid
+     * lines are skipped and reported. Chunks stored before a failure stay
+     * stored.
+     */
+    @PostMapping(value = "/import", consumes = DataUrlWireFormats.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<DataUrlImportResponseDTO> importAll(
+            HttpServletRequest request) throws IOException {
+        var importer = new DataUrlImport(formats.mapperFor(MediaType.APPLICATION_JSON), validator,
+                batchProperties.getChunkSize(), batchProperties.getMaximumImportErrors());
+        try (var reader = new BufferedReader(new InputStreamReader(
+                request.getInputStream(), StandardCharsets.UTF_8))) {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                importChunk(importer, importer.add(line));
+            }
+        }
+        importChunk(importer, importer.rest());
+        if (importer.hasFailures()) {
+            metrics.validationFailed();
+        }
+        return ResponseEntity.ok(importer.response());
+    }
+
     @PutMapping("/{id}")
     @ResponseBody
     public ResponseEntity modify(
-            @PathVariable Long id, @Valid @RequestBody DataUrlRequestDTO dto) {
-        var entry = mapper.map(dto, DataUrl.class);
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody DataUrlRequestDTO dto) {
+        var entry = DataUrlMapper.toDataUrl(dto);
+        entry.setVersion(DataUrlVersionRequests.version(ifMatch, service.findVersion(id)));
         return service.modify(id, entry)
                 .map(l -> ResponseEntity.noContent().build())
-                .orElse(ResponseEntity.notFound().build());
+                .orElseGet(this::notFound);
+    }
+
+    @PutMapping("/batch")
+    @ResponseBody
+    public ResponseEntity<DataUrlBatchResponseDTO> modifyAll(
+            @RequestBody List<DataUrlModifyRequestDTO> dtos) {
+        var errors = validate(dtos);
+        if (!errors.isEmpty()) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().body(batchResponse(List.of(), List.of(), errors));
+        }
+        var entries = dtos.stream()
+                .map(DataUrlMapper::toDataUrl)
+                .collect(Collectors.toList());
+        var modified = service.modifyAll(entries);
+        return ResponseEntity.ok(batchResponse(modified, DataUrlBatchRequests.notFound(entries.stream()
+                .map(DataUrl::getId)
+                .collect(Collectors.toList()), modified), List.of()));
     }
 
     @DeleteMapping("/{id}")
@@ -75,7 +349,146 @@ public class DataUrlController {
     public ResponseEntity delete(
             @PathVariable Long id) {
         return service.delete(id)
-                .map(l -> ResponseEntity.noContent().build())
-                .orElse(ResponseEntity.notFound().build());
+                ? ResponseEntity.noContent().build()
+                : notFound();
+    }
+
+    @DeleteMapping("/batch")
+    @ResponseBody
+    public ResponseEntity<DataUrlBatchResponseDTO> deleteAll(
+            @RequestBody List<Long> ids) {
+        var errors = validate(ids);
+        if (!errors.isEmpty()) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().body(batchResponse(List.of(), List.of(), errors));
+        }
+        var deleted = service.deleteAll(ids);
+        return ResponseEntity.ok(batchResponse(deleted, DataUrlBatchRequests.notFound(ids, deleted), List.of()));
+    }
+
+    private void importChunk(DataUrlImport importer, List<DataUrl> chunk) {
+        if (!chunk.isEmpty()) {
+            importer.imported(service.createAll(chunk).size());
+        }
+    }
+
+    private List<String> validate(List<?> items) {
+        return DataUrlBatchRequests.validate(validator, items, batchProperties.getMaximumSize());
+    }
+
+    /**
+     * Counts request bodies rejected by {@code @Valid} and rethrows, leaving
+     * the response to the default exception resolvers.
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public void onValidationFailure(MethodArgumentNotValidException e)
+            throws MethodArgumentNotValidException {
+        metrics.validationFailed();
+        throw e;
+    }
+
+    /**
+     * Answers an {@code If-Match} that does not match the stored version,
+     * or that is sent for an entry that does not exist.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity onVersionMismatch() {
+        metrics.writeConflicted();
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    /**
+     * Answers a write that kept failing on concurrent access to the same
+     * rows after the last retry.
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity onConcurrencyFailure() {
+        metrics.writeConflicted();
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Answers a change stream asked for while the change log has as many
+     * subscribers as it takes.
+     */
+    @ExceptionHandler(DataUrlSubscriptionRejectedException.class)
+    public ResponseEntity onSubscriptionRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    /**
+     * Answers a write that waited too long for the entry's create to leave
+     * the write-behind buffer, or a read that waited too long for the same
+     * read running already.
+     */
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity onResourceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    private static <T> ResponseEntity<T> ok(T body, DataUrlVersion version, String tag) {
+        if (version == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok()
+                .eTag(tag)
+                .lastModified(version.getLastModified().toEpochMilli())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .body(body);
+    }
+
+    private <T> ResponseEntity<T> notFound() {
+        metrics.notFound();
+        return ResponseEntity.notFound().build();
+    }
+
+    private DataUrlBatchResponseDTO batchResponse(
+            List<Long> ids, List<Long> notFound, List<String> errors) {
+        metrics.notFound(notFound.size());
+        return DataUrlBatchRequests.response(ids, notFound, errors);
+    }
+
+    private DataUrlBatchReadResponseDTO readResponse(
+            List<DataUrlResponseDTO> urls, List<Long> notFound, List<String> errors) {
+        metrics.notFound(notFound.size());
+        return DataUrlBatchRequests.readResponse(urls, notFound, errors);
+    }
+
+    private static void send(SseEmitter emitter, DataUrlChange change) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(change.getSequence()))
+                    .data(DataUrlMapper.toChangeDTO(change), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void compacted(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(DataUrlChangeRequests.COMPACTED_EVENT)
+                    .data(""));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void write(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
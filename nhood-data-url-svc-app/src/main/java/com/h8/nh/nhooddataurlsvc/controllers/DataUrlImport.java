@@ -0,0 +1,119 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlImportResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One import of newline-delimited JSON, shared by the servlet and reactive
+ * controllers. Lines are parsed and validated as they arrive and valid
+ * entries are handed out in chunks to persist, so the body is never held in
+ * memory. Blank lines are skipped. Errors name the line, counted from one;
+ * all of them are counted, but only the first ones are reported.
+ */
+final class DataUrlImport {
+
+    private final ObjectReader reader;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    private final int maximumErrors;
+
+    private final List<String> errors = new ArrayList<>();
+
+    private List<DataUrl> chunk;
+
+    private long line;
+
+    private long imported;
+
+    private long failed;
+
+    DataUrlImport(ObjectMapper mapper, Validator validator, int chunkSize, int maximumErrors) {
+        this.reader = mapper.readerFor(DataUrlRequestDTO.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maximumErrors = maximumErrors;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Takes the next line and returns a full chunk once there is one, or an
+     * empty list.
+     */
+    List<DataUrl> add(String text) {
+        line++;
+        if (text.trim().isEmpty()) {
+            return List.of();
+        }
+        DataUrlRequestDTO dto;
+        try {
+            dto = reader.readValue(text);
+        } catch (JsonProcessingException e) {
+            return fail(List.of(e.getOriginalMessage()));
+        } catch (IOException e) {
+            return fail(List.of(e.getMessage()));
+        }
+        if (dto == null) {
+            return fail(List.of("must not be null"));
+        }
+        var violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return fail(violations.stream()
+                    .map(l -> l.getPropertyPath() + ": " + l.getMessage())
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        chunk.add(DataUrlMapper.toDataUrl(dto));
+        return chunk.size() < chunkSize ? List.of() : rest();
+    }
+
+    /**
+     * Returns the entries collected since the last full chunk.
+     */
+    List<DataUrl> rest() {
+        var rest = chunk;
+        chunk = new ArrayList<>(chunkSize);
+        return rest;
+    }
+
+    void imported(int count) {
+        imported += count;
+    }
+
+    boolean hasFailures() {
+        return failed > 0;
+    }
+
+    DataUrlImportResponseDTO response() {
+        var dto = new DataUrlImportResponseDTO();
+        dto.setImported(imported);
+        dto.setFailed(failed);
+        dto.setErrors(errors);
+        return dto;
+    }
+
+    private List<DataUrl> fail(List<String> messages) {
+        failed++;
+        for (var message : messages) {
+            if (errors.size() < maximumErrors) {
+                errors.add(String.format("line %d: %s", line, message));
+            }
+        }
+        return List.of();
+    }
+}
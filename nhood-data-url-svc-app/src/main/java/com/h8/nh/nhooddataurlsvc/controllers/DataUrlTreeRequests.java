@@ -0,0 +1,33 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key tree request handling shared by the servlet and reactive controllers.
+ */
+final class DataUrlTreeRequests {
+
+    static final String PATH = "/urls/tree";
+
+    private DataUrlTreeRequests() {
+    }
+
+    /**
+     * Reads the key from the raw request path below {@code /urls/tree}, one
+     * segment per path segment. Segments are percent-decoded one by one, so
+     * an encoded slash stays inside its segment.
+     */
+    static List<String> key(String path) {
+        var key = new ArrayList<String>();
+        for (var segment : path.substring(path.indexOf(PATH) + PATH.length()).split("/")) {
+            if (!segment.isEmpty()) {
+                key.add(UriUtils.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return key;
+    }
+}
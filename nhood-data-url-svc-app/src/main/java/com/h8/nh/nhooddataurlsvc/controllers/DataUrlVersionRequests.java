@@ -0,0 +1,107 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Conditional write handling shared by the servlet and reactive
+ * controllers. An entity tag is an entry version or collection tag
+ * followed by the representation it was sent in, so the JSON, Smile and
+ * gzip responses of one version never share a strong tag.
+ */
+final class DataUrlVersionRequests {
+
+    private DataUrlVersionRequests() {
+    }
+
+    /**
+     * Tags one representation of a version: {@code "3-json"},
+     * {@code "3-smile-gzip"}. The encoding is part of the tag whenever the
+     * client accepts gzip, whether or not the response ends up compressed.
+     */
+    static String etag(Object version, MediaType mediaType, String acceptEncoding) {
+        var format = DataUrlWireFormats.APPLICATION_SMILE.equals(mediaType) ? "smile" : "json";
+        return version + "-" + format + (acceptsGzip(acceptEncoding) ? "-gzip" : "");
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (var coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates an {@code If-Match} header against the entry's current
+     * version as RFC 7232 has it: {@code *} matches any existing entry, and
+     * a list of tags matches when one of them is strongly equal to the tag
+     * of any representation of the current version, so weak tags never
+     * match. Returns the version the update has to apply at, or null when
+     * the header is absent or {@code *}.
+     * Fails with {@link OptimisticLockingFailureException} when the header
+     * does not match, including any header on an entry that does not exist.
+     */
+    static Long version(String ifMatch, Optional<DataUrlVersion> current) {
+        if (ifMatch == null) {
+            return null;
+        }
+        if (!current.isPresent()) {
+            throw new OptimisticLockingFailureException("If-Match on an entry that does not exist");
+        }
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var version = current.get().getVersion();
+        var tag = String.valueOf(version);
+        for (var l : strongTags(ifMatch)) {
+            if (l.equals(tag) || l.startsWith(tag + "-")) {
+                return version;
+            }
+        }
+        throw new OptimisticLockingFailureException(
+                String.format("If-Match %s does not match version %d", ifMatch, version));
+    }
+
+    /**
+     * Reads the opaque values of the strong tags of a comma-separated list
+     * of entity tags. Weak tags are left out, and reading stops at the
+     * first element that is not a tag.
+     */
+    static List<String> strongTags(String header) {
+        var tags = new ArrayList<String>();
+        var i = 0;
+        while (i < header.length()) {
+            var c = header.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            var weak = header.startsWith("W/", i);
+            var open = weak ? i + 2 : i;
+            if (open >= header.length() || header.charAt(open) != '"') {
+                break;
+            }
+            var close = header.indexOf('"', open + 1);
+            if (close < 0) {
+                break;
+            }
+            if (!weak) {
+                tags.add(header.substring(open + 1, close));
+            }
+            i = close + 1;
+        }
+        return tags;
+    }
+}
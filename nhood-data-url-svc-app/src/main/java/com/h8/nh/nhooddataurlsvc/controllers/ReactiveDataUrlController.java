@@ -0,0 +1,499 @@
+package com.h8.nh.nhooddataurlsvc.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlSubscriptionRejectedException;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlBatchProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlChangeLogProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlModifyRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchReadResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangeDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangesResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlImportResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
+import com.h8.nh.nhooddataurlsvc.services.ReactiveDataUrlService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * WebFlux counterpart of {@link DataUrlController} with the same contract,
+ * active when the application runs as a reactive web application.
+ */
+@RestController
+@RequestMapping("/urls")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataUrlController {
+
+    private static final int MAX_PAGE_LIMIT = 1000;
+
+    private final DataBufferFactory buffers = new DefaultDataBufferFactory();
+
+    private final DataUrlWireFormats formats;
+
+    private final Validator validator;
+
+    private final ReactiveDataUrlService service;
+
+    private final DataUrlBatchProperties batchProperties;
+
+    private final DataUrlChangeLogProperties changeLogProperties;
+
+    private final DataUrlMetrics metrics;
+
+    @Autowired
+    public ReactiveDataUrlController(
+            DataUrlWireFormats formats,
+            Validator validator,
+            ReactiveDataUrlService service,
+            DataUrlBatchProperties batchProperties,
+            DataUrlChangeLogProperties changeLogProperties,
+            DataUrlMetrics metrics) {
+        this.formats = formats;
+        this.validator = validator;
+        this.service = service;
+        this.batchProperties = batchProperties;
+        this.changeLogProperties = changeLogProperties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Writes the entries as one array, element by element, as the client
+     * consumes them. A single generator writes the whole response, so Smile
+     * back-references span all elements.
+     */
+    @GetMapping
+    public ResponseEntity<Flux<DataBuffer>> findAll(ServerWebExchange exchange) {
+        var mediaType = formats.negotiate(exchange.getRequest().getHeaders().getAccept());
+        var tag = DataUrlVersionRequests.etag(service.collectionTag(), mediaType,
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        var lastModified = service.collectionLastModified();
+        if (exchange.checkNotModified(tag, lastModified)) {
+            return null;
+        }
+        var mapper = formats.mapperFor(mediaType);
+        var sequence = service.changeSequence();
+        var body = Flux.defer(() -> {
+            var writer = new ArrayWriter(mapper, buffers);
+            return Flux.concat(
+                    Mono.fromSupplier(writer::start),
+                    service.findAll().map(writer::write),
+                    Mono.fromSupplier(writer::end));
+        });
+        return ResponseEntity.ok()
+                .eTag(tag)
+                .lastModified(lastModified.toEpochMilli())
+                .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence))
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(mediaType)
+                .body(body);
+    }
+
+    /**
+     * Writes every entry as one line of JSON, a page at a time as the
+     * client consumes them.
+     */
+    @GetMapping(value = "/export", produces = DataUrlWireFormats.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> exportAll() {
+        var mapper = formats.mapperFor(MediaType.APPLICATION_JSON);
+        var sequence = service.changeSequence();
+        var body = service.findAllPages()
+                .map(l -> lines(mapper, l));
+        return ResponseEntity.ok()
+                .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence))
+                .body(body);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<List<DataUrlResponseDTO>>> findPage(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            metrics.validationFailed();
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        var sequence = service.changeSequence();
+        return service.findPage(after, limit).map(page -> {
+            var response = ResponseEntity.ok()
+                    .header(DataUrlChangeRequests.SEQUENCE_HEADER, String.valueOf(sequence));
+            if (page.size() == limit) {
+                var next = page.get(page.size() - 1).getId();
+                response.header(HttpHeaders.LINK,
+                        String.format("</urls?after=%d&limit=%d>; rel=\"next\"", next, limit));
+            }
+            return response.body(page);
+        });
+    }
+
+    @GetMapping(params = {"ids", "!limit"})
+    public Mono<ResponseEntity<DataUrlBatchReadResponseDTO>> findAllById(
+            @RequestParam List<Long> ids) {
+        return readAll(ids);
+    }
+
+    @PostMapping("/batch/read")
+    public Mono<ResponseEntity<DataUrlBatchReadResponseDTO>> readAll(
+            @RequestBody List<Long> ids) {
+        var errors = validate(ids);
+        if (!errors.isEmpty()) {
+            metrics.validationFailed();
+            return Mono.just(ResponseEntity.badRequest().body(readResponse(List.of(), List.of(), errors)));
+        }
+        return service.findAllById(ids)
+                .map(l -> ResponseEntity.ok(readResponse(l, DataUrlBatchRequests.notFound(ids,
+                        DataUrlBatchRequests.ids(l)), List.of())));
+    }
+
+    @GetMapping(value = "/changes", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<DataUrlChangesResponseDTO> findChanges(
+            @RequestParam long since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            metrics.validationFailed();
+            return ResponseEntity.badRequest().build();
+        }
+        return service.findChanges(since, limit)
+                .map(l -> ResponseEntity.ok(DataUrlChangeRequests.response(since, l)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.GONE).build());
+    }
+
+    /**
+     * Changes are pushed into a buffer as the log signals them, up to
+     * {@code nhood.data-url.changes.stream-buffer-size} the client has not
+     * read yet. A client that falls further behind has its stream closed,
+     * and resumes from its {@code Last-Event-ID} when it reconnects.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DataUrlChangeDTO>> streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        var start = DataUrlChangeRequests.streamStart(since, lastEventId, service.changeSequence());
+        Flux<ServerSentEvent<DataUrlChangeDTO>> events = Flux.create(sink -> {
+            var subscription = service.subscribeToChanges(start,
+                    l -> l.forEach(change -> sink.next(ServerSentEvent.builder(DataUrlMapper.toChangeDTO(change))
+                            .id(String.valueOf(change.getSequence()))
+                            .build())),
+                    () -> {
+                        sink.next(ServerSentEvent.<DataUrlChangeDTO>builder()
+                                .event(DataUrlChangeRequests.COMPACTED_EVENT)
+                                .build());
+                        sink.complete();
+                    });
+            sink.onDispose(subscription::cancel);
+        }, FluxSink.OverflowStrategy.IGNORE);
+        return events
+                .onBackpressureBuffer(changeLogProperties.getStreamBufferSize(), l -> {
+                }, BufferOverflowStrategy.ERROR)
+                .onErrorResume(Exceptions::isOverflow, e -> Flux.empty())
+                .take(changeLogProperties.getStreamTimeout());
+    }
+
+    @GetMapping("/lookup")
+    public Mono<List<DataUrlResponseDTO>> lookup(
+            @RequestParam List<String> key,
+            @RequestParam(defaultValue = "false") boolean prefix) {
+        return prefix
+                ? service.findByKeyPrefix(key)
+                : service.findByKey(key);
+    }
+
+    @GetMapping("/tree/**")
+    public Mono<ResponseEntity<DataUrlTreeResponseDTO>> findTree(
+            @RequestParam(defaultValue = "false") boolean longest,
+            ServerWebExchange exchange) {
+        var key = DataUrlTreeRequests.key(exchange.getRequest().getPath().value());
+        return (longest ? service.findTreeByLongestPrefix(key) : service.findTree(key))
+                .map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.fromSupplier(this::notFound));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DataUrlResponseDTO>> findById(
+            @PathVariable Long id, ServerWebExchange exchange) {
+        var version = service.findVersion(id).orElse(null);
+        var tag = version == null ? null : DataUrlVersionRequests.etag(version.getVersion(),
+                formats.negotiate(exchange.getRequest().getHeaders().getAccept()),
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        if (version != null && exchange.checkNotModified(tag, version.getLastModified())) {
+            return Mono.empty();
+        }
+        return service.findById(id)
+                .map(l -> ok(l, version, tag))
+                .switchIfEmpty(Mono.fromSupplier(this::notFound));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> create(
+            @Valid @RequestBody Mono<DataUrlRequestDTO> dto) {
+        return validated(dto)
+                .map(DataUrlMapper::toDataUrl)
+                .flatMap(service::create)
+                .map(l -> ResponseEntity.created(URI.create("/urls/" + l.getId())).build());
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<DataUrlBatchResponseDTO>> createAll(
+            @RequestBody List<DataUrlRequestDTO> dtos) {
+        var errors = validate(dtos);
+        if (!errors.isEmpty()) {
+            return Mono.just(badRequest(errors));
+        }
+        var entries = dtos.stream()
+                .map(DataUrlMapper::toDataUrl)
+                .collect(Collectors.toList());
+        return service.createAll(entries)
+                .map(l -> l.stream()
+                        .map(DataUrl::getId)
+                        .collect(Collectors.toList()))
+                .map(l -> ResponseEntity.ok(batchResponse(l, List.of(), List.of())));
+    }
+
+    /**
+     * Reads one entry per line and creates the valid ones in chunks as the
+     * body arrives; the next chunk is read once the previous one is stored.
+     */
+    @PostMapping(value = "/import", consumes = DataUrlWireFormats.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<DataUrlImportResponseDTO>> importAll(
+            @RequestBody Flux<String> lines) {
+        return Mono.defer(() -> {
+            var importer = new DataUrlImport(formats.mapperFor(MediaType.APPLICATION_JSON), validator,
+                    batchProperties.getChunkSize(), batchProperties.getMaximumImportErrors());
+            return lines
+                    .concatMap(l -> importChunk(importer, importer.add(l)), 1)
+                    .then(Mono.defer(() -> importChunk(importer, importer.rest())))
+                    .then(Mono.fromSupplier(() -> {
+                        if (importer.hasFailures()) {
+                            metrics.validationFailed();
+                        }
+                        return ResponseEntity.ok(importer.response());
+                    }));
+        });
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Void>> modify(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody Mono<DataUrlRequestDTO> dto) {
+        return validated(dto)
+                .map(DataUrlMapper::toDataUrl)
+                .doOnNext(l -> l.setVersion(DataUrlVersionRequests.version(ifMatch, service.findVersion(id))))
+                .flatMap(l -> service.modify(id, l)
+                        .map(r -> ResponseEntity.noContent().<Void>build())
+                        .switchIfEmpty(Mono.fromSupplier(this::notFound)));
+    }
+
+    @PutMapping("/batch")
+    public Mono<ResponseEntity<DataUrlBatchResponseDTO>> modifyAll(
+            @RequestBody List<DataUrlModifyRequestDTO> dtos) {
+        var errors = validate(dtos);
+        if (!errors.isEmpty()) {
+            return Mono.just(badRequest(errors));
+        }
+        var entries = dtos.stream()
+                .map(DataUrlMapper::toDataUrl)
+                .collect(Collectors.toList());
+        var ids = entries.stream()
+                .map(DataUrl::getId)
+                .collect(Collectors.toList());
+        return service.modifyAll(entries)
+                .map(l -> ResponseEntity.ok(batchResponse(l, DataUrlBatchRequests.notFound(ids, l), List.of())));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(
+            @PathVariable Long id) {
+        return service.delete(id)
+                .map(l -> l
+                        ? ResponseEntity.noContent().<Void>build()
+                        : notFound());
+    }
+
+    @DeleteMapping("/batch")
+    public Mono<ResponseEntity<DataUrlBatchResponseDTO>> deleteAll(
+            @RequestBody List<Long> ids) {
+        var errors = validate(ids);
+        if (!errors.isEmpty()) {
+            return Mono.just(badRequest(errors));
+        }
+        return service.deleteAll(ids)
+                .map(l -> ResponseEntity.ok(batchResponse(l, DataUrlBatchRequests.notFound(ids, l), List.of())));
+    }
+
+    private Mono<Void> importChunk(DataUrlImport importer, List<DataUrl> chunk) {
+        if (chunk.isEmpty()) {
+            return Mono.empty();
+        }
+        return service.createAll(chunk)
+                .doOnNext(l -> importer.imported(l.size()))
+                .then();
+    }
+
+    private DataBuffer lines(ObjectMapper mapper, List<DataUrlResponseDTO> entries) {
+        var out = new ByteArrayOutputStream();
+        try (var generator = mapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            for (var entry : entries) {
+                generator.writeObject(entry);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffers.wrap(out.toByteArray());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> onVersionMismatch() {
+        metrics.writeConflicted();
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Void> onConcurrencyFailure() {
+        metrics.writeConflicted();
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(DataUrlSubscriptionRejectedException.class)
+    public ResponseEntity<Void> onSubscriptionRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity<Void> onResourceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    private <T> Mono<T> validated(Mono<T> body) {
+        return body.doOnError(WebExchangeBindException.class, e -> metrics.validationFailed());
+    }
+
+    private List<String> validate(List<?> items) {
+        return DataUrlBatchRequests.validate(validator, items, batchProperties.getMaximumSize());
+    }
+
+    private static <T> ResponseEntity<T> ok(T body, DataUrlVersion version, String tag) {
+        if (version == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok()
+                .eTag(tag)
+                .lastModified(version.getLastModified().toEpochMilli())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .body(body);
+    }
+
+    private <T> ResponseEntity<T> notFound() {
+        metrics.notFound();
+        return ResponseEntity.notFound().build();
+    }
+
+    private ResponseEntity<DataUrlBatchResponseDTO> badRequest(List<String> errors) {
+        metrics.validationFailed();
+        return ResponseEntity.badRequest().body(batchResponse(List.of(), List.of(), errors));
+    }
+
+    private DataUrlBatchResponseDTO batchResponse(
+            List<Long> ids, List<Long> notFound, List<String> errors) {
+        metrics.notFound(notFound.size());
+        return DataUrlBatchRequests.response(ids, notFound, errors);
+    }
+
+    private DataUrlBatchReadResponseDTO readResponse(
+            List<DataUrlResponseDTO> urls, List<Long> notFound, List<String> errors) {
+        metrics.notFound(notFound.size());
+        return DataUrlBatchRequests.readResponse(urls, notFound, errors);
+    }
+
+    /**
+     * Hands out what a generator has written so far as buffers.
+     */
+    private static final class ArrayWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private final DataBufferFactory buffers;
+
+        private final JsonGenerator generator;
+
+        ArrayWriter(ObjectMapper mapper, DataBufferFactory buffers) {
+            this.buffers = buffers;
+            try {
+                this.generator = mapper.getFactory().createGenerator(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        DataBuffer start() {
+            try {
+                generator.writeStartArray();
+                return flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        DataBuffer write(Object value) {
+            try {
+                generator.writeObject(value);
+                return flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        DataBuffer end() {
+            try {
+                generator.writeEndArray();
+                generator.close();
+                return flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private DataBuffer flush() throws IOException {
+            generator.flush();
+            var buffer = buffers.wrap(out.toByteArray());
+            out.reset();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.h8.nh.nhooddataurlsvc.dictionaries;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Codes for the key segments and URL prefixes of stored entries, so a row
+ * holds a few bytes per segment and its URL as a prefix code followed by the
+ * rest of the URL. The prefix of a URL is everything up to its last slash.
+ *
+ * <p>Both dictionaries are held in memory in full and decoding shares one
+ * string per distinct value, so keys and URLs loaded from the database are
+ * interned. Values are registered as writers first use them, in the writer's
+ * transaction: other transactions only see a new code once it is committed,
+ * and a code that is rolled back is never reused. Two transactions
+ * registering the same value at once get two codes for it, which decode to
+ * the same value.
+ *
+ * <p>The dictionaries only grow: a code stays, in memory and in its table,
+ * after the last entry using it is modified or deleted. Their size is
+ * bounded by the distinct segments and prefixes ever stored, not by the
+ * entries stored now.
+ *
+ * <p>Codes are written as unsigned variable-length integers, one byte for
+ * the first 128 values of each dictionary.
+ */
+@Component
+public class DataUrlDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Values segments = new Values("data_url_segment", "segment");
+
+    private final Values prefixes = new Values("data_url_prefix", "prefix");
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public DataUrlDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Registers the segments and prefixes of the entries that are not known
+     * yet, with one batch per dictionary.
+     */
+    public void register(Collection<DataUrl> entries) {
+        var keySegments = new LinkedHashSet<String>();
+        var urlPrefixes = new LinkedHashSet<String>();
+        for (var entry : entries) {
+            keySegments.addAll(entry.getKey());
+            urlPrefixes.add(prefix(entry.getUrl()));
+        }
+        register(segments, keySegments);
+        register(prefixes, urlPrefixes);
+    }
+
+    public byte[] encodeKey(List<String> key) {
+        register(segments, key);
+        var out = new ByteArrayOutputStream(key.size() * 2);
+        for (var segment : key) {
+            writeCode(out, code(segments, segment));
+        }
+        return out.toByteArray();
+    }
+
+    public List<String> decodeKey(byte[] codes) {
+        var key = new ArrayList<String>(codes.length);
+        for (int[] position = {0}; position[0] < codes.length; ) {
+            key.add(value(segments, readCode(codes, position)));
+        }
+        return key;
+    }
+
+    public byte[] encodeUrl(String url) {
+        var prefix = prefix(url);
+        register(prefixes, List.of(prefix));
+        var out = new ByteArrayOutputStream(url.length() - prefix.length() + 2);
+        writeCode(out, code(prefixes, prefix));
+        var rest = url.substring(prefix.length()).getBytes(StandardCharsets.UTF_8);
+        out.write(rest, 0, rest.length);
+        return out.toByteArray();
+    }
+
+    public String decodeUrl(byte[] codes) {
+        var position = new int[1];
+        var prefix = value(prefixes, readCode(codes, position));
+        if (position[0] == codes.length) {
+            return prefix;
+        }
+        return prefix.concat(new String(codes, position[0], codes.length - position[0], StandardCharsets.UTF_8));
+    }
+
+    public int segmentCount() {
+        ensureLoaded();
+        return segments.codes.size();
+    }
+
+    public int prefixCount() {
+        ensureLoaded();
+        return prefixes.codes.size();
+    }
+
+    private void register(Values values, Collection<String> candidates) {
+        ensureLoaded();
+        var pending = pending(values);
+        Collection<String> missing = List.of();
+        for (var value : candidates) {
+            if (!values.codes.containsKey(value) && (pending == null || !pending.codes.containsKey(value))) {
+                if (missing.isEmpty()) {
+                    missing = new LinkedHashSet<>();
+                }
+                missing.add(value);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        var added = new HashMap<String, Integer>();
+        synchronized (values) {
+            for (var value : missing) {
+                added.put(value, values.next++);
+            }
+        }
+        jdbcTemplate.batchUpdate(values.insert, added.entrySet().stream()
+                .map(l -> new Object[]{l.getValue(), l.getKey()})
+                .collect(Collectors.toList()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            added.forEach((value, code) -> values.publish(code, value));
+        } else {
+            (pending != null ? pending : bind(values)).add(added);
+        }
+    }
+
+    private static Pending bind(Values values) {
+        var pending = new Pending();
+        TransactionSynchronizationManager.bindResource(values, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(values);
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    pending.codes.forEach((value, code) -> values.publish(code, value));
+                }
+            }
+        });
+        return pending;
+    }
+
+    private int code(Values values, String value) {
+        var code = values.codes.get(value);
+        if (code == null) {
+            code = pending(values).codes.get(value);
+        }
+        return code;
+    }
+
+    /**
+     * Decodes a code. A code that is neither published nor pending in this
+     * transaction may belong to a transaction that has committed but not
+     * yet published it, so that code alone is read from the table before
+     * giving up.
+     */
+    private String value(Values values, int code) {
+        ensureLoaded();
+        var value = values.get(code);
+        if (value == null) {
+            var pending = pending(values);
+            value = pending == null ? null : pending.values.get(code);
+        }
+        if (value == null) {
+            load(values, code);
+            value = values.get(code);
+        }
+        if (value == null) {
+            throw new IllegalStateException("Unknown code " + code + " in " + values.table);
+        }
+        return value;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load(segments);
+                    load(prefixes);
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void load(Values values) {
+        jdbcTemplate.query(values.select, (RowCallbackHandler) rs -> values.publish(rs.getInt(1), rs.getString(2)));
+    }
+
+    private void load(Values values, int code) {
+        jdbcTemplate.query(values.selectOne, (RowCallbackHandler) rs -> values.publish(rs.getInt(1), rs.getString(2)),
+                code);
+    }
+
+    private static Pending pending(Values values) {
+        return (Pending) TransactionSynchronizationManager.getResource(values);
+    }
+
+    private static String prefix(String url) {
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+
+    private static void writeCode(ByteArrayOutputStream out, int code) {
+        while ((code & ~0x7F) != 0) {
+            out.write((code & 0x7F) | 0x80);
+            code >>>= 7;
+        }
+        out.write(code);
+    }
+
+    private static int readCode(byte[] codes, int[] position) {
+        var code = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = codes[position[0]++];
+            code |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * One dictionary: codes by value and values by code, for what has been
+     * committed.
+     */
+    private static final class Values {
+
+        private final String table;
+
+        private final String select;
+
+        private final String selectOne;
+
+        private final String insert;
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+        private volatile String[] values = new String[0];
+
+        private int next;
+
+        private Values(String table, String column) {
+            this.table = table;
+            this.select = "select id, " + column + " from " + table;
+            this.selectOne = select + " where id = ?";
+            this.insert = "insert into " + table + " (id, " + column + ") values (?, ?)";
+        }
+
+        private synchronized void publish(int code, String value) {
+            var values = this.values;
+            if (code >= values.length) {
+                values = Arrays.copyOf(values, Math.max(64, Integer.highestOneBit(code) << 1));
+            }
+            values[code] = value;
+            this.values = values;
+            codes.putIfAbsent(value, code);
+            next = Math.max(next, code + 1);
+        }
+
+        private String get(int code) {
+            var values = this.values;
+            return code < values.length ? values[code] : null;
+        }
+    }
+
+    /**
+     * Values registered by the current transaction and not yet committed.
+     */
+    private static final class Pending {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final Map<Integer, String> values = new HashMap<>();
+
+        private void add(Map<String, Integer> added) {
+            codes.putAll(added);
+            added.forEach((value, code) -> values.put(code, value));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.h8.nh.nhooddataurlsvc.dictionaries;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.AttributeConverter;
+import java.util.List;
+
+/**
+ * Stores a key as the dictionary codes of its segments. Instantiated by
+ * Hibernate through the Spring bean container.
+ */
+public class DataUrlKeyConverter implements AttributeConverter<List<String>, byte[]> {
+
+    private final DataUrlDictionary dictionary;
+
+    @Autowired
+    public DataUrlKeyConverter(DataUrlDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(List<String> key) {
+        return key == null ? null : dictionary.encodeKey(key);
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(byte[] codes) {
+        return codes == null ? null : dictionary.decodeKey(codes);
+    }
+}
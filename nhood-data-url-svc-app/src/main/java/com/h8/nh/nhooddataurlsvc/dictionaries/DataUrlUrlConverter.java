@@ -0,0 +1,29 @@
+package com.h8.nh.nhooddataurlsvc.dictionaries;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.AttributeConverter;
+
+/**
+ * Stores a URL as the dictionary code of its prefix followed by the rest of
+ * it. Instantiated by Hibernate through the Spring bean container.
+ */
+public class DataUrlUrlConverter implements AttributeConverter<String, byte[]> {
+
+    private final DataUrlDictionary dictionary;
+
+    @Autowired
+    public DataUrlUrlConverter(DataUrlDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String url) {
+        return url == null ? null : dictionary.encodeUrl(url);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] codes) {
+        return codes == null ? null : dictionary.decodeUrl(codes);
+    }
+}
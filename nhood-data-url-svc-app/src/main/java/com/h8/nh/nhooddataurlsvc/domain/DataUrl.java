@@ -1,14 +1,23 @@
 package com.h8.nh.nhooddataurlsvc.domain;
 
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlKeyConverter;
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlUrlConverter;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
-import javax.persistence.ElementCollection;
+import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.Version;
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -18,10 +27,35 @@ import java.util.List;
 @Entity
 public class DataUrl {
 
+    /**
+     * Ids taken from {@code data_url_seq} at a time. Each value of the
+     * sequence reserves the block of ids starting at it, for JPA inserts
+     * and write-behind alike, so the two never hand out the same id.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "data_url_seq")
+    @GenericGenerator(name = "data_url_seq", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "data_url_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE),
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")})
     private Long id;
-    @ElementCollection
+    @Convert(converter = DataUrlKeyConverter.class)
+    @Column(name = "key_codes", length = 4096)
     private List<String> key;
+    @Convert(converter = DataUrlUrlConverter.class)
+    @Column(name = "url_codes", length = 1024)
     private String url;
+    @Version
+    private Long version;
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    @PrePersist
+    void onPersist() {
+        if (lastModified == null) {
+            lastModified = Instant.now();
+        }
+    }
 }
@@ -0,0 +1,30 @@
+package com.h8.nh.nhooddataurlsvc.domain;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One entry of the change log. Upserts carry the full state of the entry,
+ * so applying a change never needs a read; deletes carry only the id.
+ */
+@Value
+public class DataUrlChange {
+
+    public enum Type {
+        UPSERT,
+        DELETE
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private Long id;
+
+    private List<String> key;
+
+    private String url;
+
+    private Long version;
+}
@@ -0,0 +1,23 @@
+package com.h8.nh.nhooddataurlsvc.domain;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of the key tree: the ids registered exactly under {@code key}, the
+ * next segments below it with the number of entries under each, and the
+ * number of entries in the whole subtree.
+ */
+@Value
+public class DataUrlKeyNode {
+
+    private List<String> key;
+
+    private List<Long> ids;
+
+    private Map<String, Integer> children;
+
+    private int size;
+}
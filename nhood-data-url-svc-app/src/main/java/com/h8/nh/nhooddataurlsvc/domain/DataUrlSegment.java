@@ -0,0 +1,27 @@
+package com.h8.nh.nhooddataurlsvc.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Row of the key segment dictionary. Written and read through
+ * {@link com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlDictionary}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "data_url_segment")
+public class DataUrlSegment {
+
+    @Id
+    private Integer id;
+    @Column(nullable = false)
+    private String segment;
+}
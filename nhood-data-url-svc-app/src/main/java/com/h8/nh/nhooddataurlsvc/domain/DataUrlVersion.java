@@ -0,0 +1,19 @@
+package com.h8.nh.nhooddataurlsvc.domain;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Version stamp of a stored entry, enough to answer conditional requests
+ * without reading the entry itself.
+ */
+@Value
+public class DataUrlVersion {
+
+    private Long id;
+
+    private long version;
+
+    private Instant lastModified;
+}
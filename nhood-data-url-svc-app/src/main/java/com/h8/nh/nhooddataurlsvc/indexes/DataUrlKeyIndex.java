@@ -0,0 +1,344 @@
+package com.h8.nh.nhooddataurlsvc.indexes;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlKeyNode;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Radix tree over key segments, mapping a key to the ids of entries
+ * registered under it. An edge carries one or more segments: chains of
+ * nodes that hold no ids and have a single child are collapsed into one
+ * edge. Every node counts the entries in its subtree, so a listing shows the
+ * size of each branch without walking it.
+ *
+ * <p>Writes are serialized. They never relabel a node that readers may be
+ * on; splits and merges build a replacement and swap it into the parent, so
+ * reads are lock-free.
+ */
+@Component
+public class DataUrlKeyIndex {
+
+    private static final String[] ROOT_LABEL = new String[0];
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final ConcurrentMap<Long, Node> nodeById = new ConcurrentHashMap<>();
+
+    private volatile Node root = new Node(ROOT_LABEL, null);
+
+    public synchronized void put(Long id, List<String> key) {
+        remove(id);
+        register(insert(key), new long[]{id});
+    }
+
+    /**
+     * Puts many entries at once. They are inserted in key order and entries
+     * sharing a key are added to its node together, which is considerably
+     * faster than one by one when loading a large table.
+     */
+    public synchronized void putAll(Map<Long, List<String>> keys) {
+        keys.keySet().forEach(this::remove);
+        var entries = new ArrayList<>(keys.entrySet());
+        entries.sort(Map.Entry.comparingByValue(DataUrlKeyIndex::compare));
+        var from = 0;
+        while (from < entries.size()) {
+            var key = entries.get(from).getValue();
+            var to = from + 1;
+            while (to < entries.size() && entries.get(to).getValue().equals(key)) {
+                to++;
+            }
+            register(insert(key), entries.subList(from, to).stream()
+                    .mapToLong(Map.Entry::getKey)
+                    .sorted()
+                    .toArray());
+            from = to;
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        var node = nodeById.remove(id);
+        if (node != null) {
+            node.ids = LongStream.of(node.ids).filter(l -> l != id).toArray();
+            for (var n = node; n != null; n = n.parent) {
+                n.size--;
+            }
+            compact(node);
+        }
+    }
+
+    public synchronized void clear() {
+        root = new Node(ROOT_LABEL, null);
+        nodeById.clear();
+    }
+
+    public List<Long> findByKey(List<String> key) {
+        var position = locate(key);
+        return position == null || !position.isExact()
+                ? List.of()
+                : ids(position.node);
+    }
+
+    public List<Long> findByKeyPrefix(List<String> prefix) {
+        var position = locate(prefix);
+        if (position == null) {
+            return List.of();
+        }
+        var ids = new ArrayList<Long>(position.node.size);
+        collect(position.node, ids);
+        ids.sort(null);
+        return ids;
+    }
+
+    /**
+     * Lists the node at {@code key}: the ids registered exactly under it and
+     * the next segments below it with the number of entries under each.
+     */
+    public Optional<DataUrlKeyNode> findNode(List<String> key) {
+        var position = locate(key);
+        if (position == null) {
+            return Optional.empty();
+        }
+        if (!position.isExact()) {
+            var node = position.node;
+            return Optional.of(new DataUrlKeyNode(
+                    List.copyOf(key), List.of(), Map.of(node.label[position.matched], node.size), node.size));
+        }
+        return Optional.of(listing(key, position.node));
+    }
+
+    /**
+     * Resolves the longest key that is a prefix of {@code key} and has
+     * entries registered under it, and lists its node.
+     */
+    public Optional<DataUrlKeyNode> findLongestPrefix(List<String> key) {
+        Node match = root.ids.length > 0 ? root : null;
+        var matchLength = 0;
+        var node = root;
+        var i = 0;
+        while (i < key.size()) {
+            var children = node.children;
+            var child = children == null ? null : children.get(key.get(i));
+            if (child == null || child.label.length > key.size() - i) {
+                break;
+            }
+            for (var segment : child.label) {
+                if (!segment.equals(key.get(i++))) {
+                    return match(key.subList(0, matchLength), match);
+                }
+            }
+            node = child;
+            if (node.ids.length > 0) {
+                match = node;
+                matchLength = i;
+            }
+        }
+        return match(key.subList(0, matchLength), match);
+    }
+
+    public int size() {
+        return nodeById.size();
+    }
+
+    private Position locate(List<String> key) {
+        var node = root;
+        var i = 0;
+        while (i < key.size()) {
+            var children = node.children;
+            var child = children == null ? null : children.get(key.get(i));
+            if (child == null) {
+                return null;
+            }
+            var matched = 0;
+            while (matched < child.label.length && i < key.size()) {
+                if (!child.label[matched].equals(key.get(i))) {
+                    return null;
+                }
+                matched++;
+                i++;
+            }
+            if (matched < child.label.length) {
+                return new Position(child, matched);
+            }
+            node = child;
+        }
+        return new Position(node, node.label.length);
+    }
+
+    private Node insert(List<String> key) {
+        var node = root;
+        var i = 0;
+        while (i < key.size()) {
+            var child = node.children == null ? null : node.children.get(key.get(i));
+            if (child == null) {
+                var leaf = new Node(key.subList(i, key.size()).toArray(ROOT_LABEL), node);
+                children(node).put(leaf.label[0], leaf);
+                return leaf;
+            }
+            var matched = 0;
+            while (matched < child.label.length && i < key.size() && child.label[matched].equals(key.get(i))) {
+                matched++;
+                i++;
+            }
+            node = matched < child.label.length ? split(child, matched) : child;
+        }
+        return node;
+    }
+
+    private void register(Node node, long[] ids) {
+        node.ids = merge(node.ids, ids);
+        for (var id : ids) {
+            nodeById.put(id, node);
+        }
+        for (var n = node; n != null; n = n.parent) {
+            n.size += ids.length;
+        }
+    }
+
+    /**
+     * Splits the edge to {@code node} after {@code at} segments, putting a
+     * new node in between.
+     */
+    private Node split(Node node, int at) {
+        var parent = node.parent;
+        var middle = new Node(Arrays.copyOfRange(node.label, 0, at), parent);
+        var rest = copy(node, Arrays.copyOfRange(node.label, at, node.label.length), middle);
+        children(middle).put(rest.label[0], rest);
+        middle.size = rest.size;
+        parent.children.put(middle.label[0], middle);
+        return middle;
+    }
+
+    /**
+     * Drops a node left without ids or children, and merges a node left
+     * without ids and with a single child into that child.
+     */
+    private void compact(Node node) {
+        if (node == root || node.ids.length > 0) {
+            return;
+        }
+        var parent = node.parent;
+        var children = node.children;
+        if (children == null || children.isEmpty()) {
+            parent.children.remove(node.label[0]);
+            compact(parent);
+        } else if (children.size() == 1) {
+            var child = children.firstEntry().getValue();
+            var label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+            System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+            parent.children.put(label[0], copy(child, label, parent));
+        }
+    }
+
+    private Node copy(Node node, String[] label, Node parent) {
+        var copy = new Node(label, parent);
+        copy.ids = node.ids;
+        copy.children = node.children;
+        copy.size = node.size;
+        if (copy.children != null) {
+            copy.children.values().forEach(l -> l.parent = copy);
+        }
+        for (var id : copy.ids) {
+            nodeById.put(id, copy);
+        }
+        return copy;
+    }
+
+    private static ConcurrentNavigableMap<String, Node> children(Node node) {
+        if (node.children == null) {
+            node.children = new ConcurrentSkipListMap<>();
+        }
+        return node.children;
+    }
+
+    private static Optional<DataUrlKeyNode> match(List<String> key, Node node) {
+        return node == null ? Optional.empty() : Optional.of(listing(key, node));
+    }
+
+    private static DataUrlKeyNode listing(List<String> key, Node node) {
+        var children = new LinkedHashMap<String, Integer>();
+        if (node.children != null) {
+            node.children.forEach((segment, child) -> children.put(segment, child.size));
+        }
+        return new DataUrlKeyNode(List.copyOf(key), ids(node), children, node.size);
+    }
+
+    private static void collect(Node node, List<Long> ids) {
+        for (var id : node.ids) {
+            ids.add(id);
+        }
+        var children = node.children;
+        if (children != null) {
+            children.values().forEach(l -> collect(l, ids));
+        }
+    }
+
+    private static List<Long> ids(Node node) {
+        return LongStream.of(node.ids).boxed().collect(Collectors.toList());
+    }
+
+    private static long[] merge(long[] ids, long[] added) {
+        if (ids.length == 0) {
+            return added;
+        }
+        var merged = Arrays.copyOf(ids, ids.length + added.length);
+        System.arraycopy(added, 0, merged, ids.length, added.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    private static int compare(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            var result = a.get(i).compareTo(b.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    private static final class Node {
+
+        private final String[] label;
+
+        private volatile long[] ids = NO_IDS;
+
+        private volatile ConcurrentNavigableMap<String, Node> children;
+
+        private volatile int size;
+
+        private Node parent;
+
+        private Node(String[] label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+    }
+
+    private static final class Position {
+
+        private final Node node;
+
+        private final int matched;
+
+        private Position(Node node, int matched) {
+            this.node = node;
+            this.matched = matched;
+        }
+
+        private boolean isExact() {
+            return matched == node.label.length;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.h8.nh.nhooddataurlsvc.indexes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of all entries, used to answer conditional requests
+ * without touching the cache or the database. The collection tag is the
+ * entry count plus an order-independent hash of (id, version) pairs, kept up
+ * to date incrementally, so it is derived from stored data and survives
+ * restarts. The collection's last modification time is not stored, so it
+ * starts at the time of the last rebuild and covers deletions made before.
+ *
+ * <p>A removed entry leaves a tombstone for {@link #TOMBSTONE_RETENTION}.
+ * Ids are never reused, so a tombstone outranks every version of its
+ * entry: an update that committed before the delete but is published after
+ * it is refused instead of bringing the entry back.
+ */
+@Component
+public class DataUrlVersionIndex {
+
+    static final Duration TOMBSTONE_RETENTION = Duration.ofMinutes(1);
+
+    private final ConcurrentMap<Long, DataUrlVersion> versions = new ConcurrentHashMap<>();
+
+    private final Cache<Long, Boolean> tombstones = Caffeine.newBuilder()
+            .expireAfterWrite(TOMBSTONE_RETENTION)
+            .build();
+
+    private final AtomicLong hash = new AtomicLong();
+
+    private final AtomicLong lastModified = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Records a version unless a newer one is already known, so
+     * out-of-order updates of the same entry never move it backwards.
+     */
+    public void put(DataUrlVersion version) {
+        if (isDeleted(version.getId())) {
+            return;
+        }
+        versions.compute(version.getId(), (id, current) -> {
+            if (current != null && current.getVersion() >= version.getVersion()) {
+                return current;
+            }
+            hash.addAndGet(mix(version) - (current == null ? 0 : mix(current)));
+            return version;
+        });
+        lastModified.accumulateAndGet(version.getLastModified().toEpochMilli(), Math::max);
+    }
+
+    public void remove(Long id) {
+        var removed = versions.remove(id);
+        tombstones.put(id, Boolean.TRUE);
+        if (removed != null) {
+            hash.addAndGet(-mix(removed));
+            lastModified.accumulateAndGet(System.currentTimeMillis(), Math::max);
+        }
+    }
+
+    public boolean isDeleted(Long id) {
+        return tombstones.getIfPresent(id) != null;
+    }
+
+    public void clear() {
+        versions.clear();
+        tombstones.invalidateAll();
+        hash.set(0);
+        lastModified.set(System.currentTimeMillis());
+    }
+
+    public Optional<DataUrlVersion> find(Long id) {
+        return Optional.ofNullable(versions.get(id));
+    }
+
+    public String collectionTag() {
+        return String.format("%d-%016x", versions.size(), hash.get());
+    }
+
+    public Instant collectionLastModified() {
+        return Instant.ofEpochMilli(lastModified.get());
+    }
+
+    private static long mix(DataUrlVersion version) {
+        var z = version.getId() * 0x9E3779B97F4A7C15L + version.getVersion();
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
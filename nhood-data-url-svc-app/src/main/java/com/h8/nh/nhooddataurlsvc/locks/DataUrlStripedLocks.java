@@ -0,0 +1,77 @@
+package com.h8.nh.nhooddataurlsvc.locks;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlConcurrencyProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of locks shared by all entries, each id mapping to one of
+ * them. Writers of the same entry take turns in memory instead of queueing
+ * on the row lock in the database, and what they publish to the in-memory
+ * indexes afterwards is applied in the order they wrote. Entries that share
+ * a stripe are serialized too, so there should be many more stripes than
+ * concurrent writers.
+ *
+ * <p>Publishing always runs under the stripe. Holding it across the
+ * database write is what {@code nhood.data-url.concurrency.striped-locks}
+ * switches; without it, only the publishing of writes to the same entry is
+ * ordered.
+ */
+@Component
+public class DataUrlStripedLocks {
+
+    private final boolean enabled;
+
+    private final ReentrantLock[] locks;
+
+    private final int shift;
+
+    @Autowired
+    public DataUrlStripedLocks(DataUrlConcurrencyProperties properties) {
+        var stripes = Integer.highestOneBit(Math.max(1, properties.getStripes() - 1) << 1);
+        this.enabled = properties.isStripedLocks();
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.shift = 64 - Integer.numberOfTrailingZeros(stripes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs a write of the entry, holding its stripe when enabled.
+     */
+    public <T> T write(Long id, Supplier<T> write) {
+        return enabled ? locked(id, write) : write.get();
+    }
+
+    /**
+     * Publishes a committed write of the entry, holding its stripe.
+     */
+    public void publish(Long id, Runnable publication) {
+        locked(id, () -> {
+            publication.run();
+            return null;
+        });
+    }
+
+    private <T> T locked(Long id, Supplier<T> work) {
+        var lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int stripe(Long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
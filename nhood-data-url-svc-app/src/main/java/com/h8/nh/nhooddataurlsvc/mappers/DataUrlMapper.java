@@ -0,0 +1,67 @@
+package com.h8.nh.nhooddataurlsvc.mappers;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlKeyNode;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlModifyRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangeDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public final class DataUrlMapper {
+
+    private DataUrlMapper() {
+    }
+
+    public static DataUrl toDataUrl(DataUrlRequestDTO dto) {
+        return DataUrl.builder()
+                .key(copy(dto.getKey()))
+                .url(dto.getUrl())
+                .build();
+    }
+
+    public static DataUrl toDataUrl(DataUrlModifyRequestDTO dto) {
+        return DataUrl.builder()
+                .id(dto.getId())
+                .key(copy(dto.getKey()))
+                .url(dto.getUrl())
+                .build();
+    }
+
+    public static DataUrlResponseDTO toResponseDTO(DataUrl entry) {
+        var dto = new DataUrlResponseDTO();
+        dto.setId(entry.getId());
+        dto.setKey(copy(entry.getKey()));
+        dto.setUrl(entry.getUrl());
+        return dto;
+    }
+
+    public static DataUrlChangeDTO toChangeDTO(DataUrlChange change) {
+        var dto = new DataUrlChangeDTO();
+        dto.setSequence(change.getSequence());
+        dto.setType(change.getType().name());
+        dto.setId(change.getId());
+        dto.setKey(copy(change.getKey()));
+        dto.setUrl(change.getUrl());
+        dto.setVersion(change.getVersion());
+        return dto;
+    }
+
+    public static DataUrlTreeResponseDTO toTreeDTO(DataUrlKeyNode node, List<DataUrlResponseDTO> entries) {
+        var dto = new DataUrlTreeResponseDTO();
+        dto.setKey(copy(node.getKey()));
+        dto.setEntries(entries);
+        dto.setChildren(new LinkedHashMap<>(node.getChildren()));
+        dto.setSize(node.getSize());
+        return dto;
+    }
+
+    private static List<String> copy(List<String> key) {
+        return key == null ? null : new ArrayList<>(key);
+    }
+}
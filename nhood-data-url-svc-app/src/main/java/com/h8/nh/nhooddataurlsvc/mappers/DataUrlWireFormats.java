@@ -0,0 +1,66 @@
+package com.h8.nh.nhooddataurlsvc.mappers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response encodings: JSON and Smile, Jackson's binary form of JSON. Smile
+ * writes a repeated field name or short string once and back-references it
+ * afterwards, so key segments shared across a list and the field names of
+ * every element are effectively dictionary-coded.
+ */
+public class DataUrlWireFormats {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ObjectMapper json;
+
+    private final ObjectMapper smile;
+
+    public DataUrlWireFormats(ObjectMapper json, ObjectMapper smile) {
+        this.json = json;
+        this.smile = smile;
+    }
+
+    /**
+     * Smile factory with back-references for string values as well as
+     * field names; values are not shared by default.
+     */
+    public static SmileFactory smileFactory() {
+        return new SmileFactory()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+    }
+
+    public ObjectMapper getSmile() {
+        return smile;
+    }
+
+    /**
+     * Picks the preferred acceptable format, JSON when both are equally
+     * acceptable or the client does not say.
+     */
+    public MediaType negotiate(List<MediaType> accepted) {
+        var sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (var mediaType : sorted) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (mediaType.includes(APPLICATION_SMILE)) {
+                return APPLICATION_SMILE;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public ObjectMapper mapperFor(MediaType mediaType) {
+        return APPLICATION_SMILE.equals(mediaType) ? smile : json;
+    }
+}
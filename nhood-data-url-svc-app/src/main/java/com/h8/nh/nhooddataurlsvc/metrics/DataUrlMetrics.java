@@ -0,0 +1,70 @@
+package com.h8.nh.nhooddataurlsvc.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters for request outcomes that are not visible from timings alone.
+ * All meters of this service share the {@link #PREFIX} name prefix.
+ */
+@Component
+public class DataUrlMetrics {
+
+    public static final String PREFIX = "data_url";
+
+    static final String NOT_FOUND = PREFIX + ".not_found";
+
+    static final String VALIDATION_FAILURES = PREFIX + ".validation.failures";
+
+    static final String WRITE_RETRIES = PREFIX + ".write.retries";
+
+    static final String WRITE_CONFLICTS = PREFIX + ".write.conflicts";
+
+    private final Counter notFound;
+
+    private final Counter validationFailures;
+
+    private final Counter writeRetries;
+
+    private final Counter writeConflicts;
+
+    @Autowired
+    public DataUrlMetrics(MeterRegistry registry) {
+        notFound = Counter.builder(NOT_FOUND)
+                .description("Requested ids that did not exist")
+                .register(registry);
+        validationFailures = Counter.builder(VALIDATION_FAILURES)
+                .description("Requests rejected as invalid")
+                .register(registry);
+        writeRetries = Counter.builder(WRITE_RETRIES)
+                .description("Writes retried after a transient database concurrency failure")
+                .register(registry);
+        writeConflicts = Counter.builder(WRITE_CONFLICTS)
+                .description("Writes rejected for a version mismatch or after the last retry")
+                .register(registry);
+    }
+
+    public void notFound() {
+        notFound(1);
+    }
+
+    public void notFound(int count) {
+        if (count > 0) {
+            notFound.increment(count);
+        }
+    }
+
+    public void validationFailed() {
+        validationFailures.increment();
+    }
+
+    public void writeRetried() {
+        writeRetries.increment();
+    }
+
+    public void writeConflicted() {
+        writeConflicts.increment();
+    }
+}
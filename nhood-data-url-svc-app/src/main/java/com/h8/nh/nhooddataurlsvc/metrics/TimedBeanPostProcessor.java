@@ -0,0 +1,48 @@
+package com.h8.nh.nhooddataurlsvc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.Map;
+
+/**
+ * Wraps beans of the given types with a {@link TimedMethodInterceptor}.
+ * Beans that are already proxies, like Spring Data repositories or
+ * transactional beans, get the interceptor as their outermost advice so the
+ * timing includes the transaction.
+ */
+public class TimedBeanPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private final Map<Class<?>, String> names;
+
+    public TimedBeanPostProcessor(ObjectProvider<MeterRegistry> registry, Map<Class<?>, String> names) {
+        this.registry = registry;
+        this.names = names;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        for (var entry : names.entrySet()) {
+            if (entry.getKey().isInstance(bean)) {
+                return proxy(bean, new TimedMethodInterceptor(
+                        registry::getObject, entry.getValue(), entry.getKey()));
+            }
+        }
+        return bean;
+    }
+
+    private static Object proxy(Object bean, TimedMethodInterceptor interceptor) {
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, interceptor);
+            return bean;
+        }
+        var factory = new ProxyFactory(bean);
+        factory.addAdvice(interceptor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+}
@@ -0,0 +1,143 @@
+package com.h8.nh.nhooddataurlsvc.replicas;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from entry id to record offset, kept in two
+ * primitive arrays so neither lookups nor the table itself box anything.
+ * Collisions are resolved by linear probing and removals shift the rest of
+ * the probe run back, so no tombstones build up.
+ *
+ * <p>Not thread-safe. Lookups racing with a write may return a wrong offset
+ * but always terminate, which is what an optimistic reader needs.
+ */
+final class DataUrlOffsetMap {
+
+    static final long MISSING = -1;
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private volatile Table table = new Table(MINIMUM_CAPACITY);
+
+    private int size;
+
+    long get(long id) {
+        var table = this.table;
+        var mask = table.ids.length - 1;
+        for (int i = table.index(id), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            var offset = table.offsets[i];
+            if (offset == MISSING) {
+                return MISSING;
+            }
+            if (table.ids[i] == id) {
+                return offset;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Maps the id to the offset and returns the offset it replaced.
+     */
+    long put(long id, long offset) {
+        if ((size + 1) * 4L > table.ids.length * 3L) {
+            table = resize(table.ids.length * 2);
+        }
+        var table = this.table;
+        var mask = table.ids.length - 1;
+        var i = table.index(id);
+        while (table.offsets[i] != MISSING) {
+            if (table.ids[i] == id) {
+                var replaced = table.offsets[i];
+                table.offsets[i] = offset;
+                return replaced;
+            }
+            i = (i + 1) & mask;
+        }
+        table.ids[i] = id;
+        table.offsets[i] = offset;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * Removes the id and returns the offset it was mapped to.
+     */
+    long remove(long id) {
+        var table = this.table;
+        var mask = table.ids.length - 1;
+        var i = table.index(id);
+        while (table.offsets[i] != MISSING && table.ids[i] != id) {
+            i = (i + 1) & mask;
+        }
+        var removed = table.offsets[i];
+        if (removed == MISSING) {
+            return MISSING;
+        }
+        for (int j = (i + 1) & mask; table.offsets[j] != MISSING; j = (j + 1) & mask) {
+            var home = table.index(table.ids[j]);
+            if (i <= j ? i < home && home <= j : i < home || home <= j) {
+                continue;
+            }
+            table.ids[i] = table.ids[j];
+            table.offsets[i] = table.offsets[j];
+            i = j;
+        }
+        table.offsets[i] = MISSING;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(OffsetConsumer consumer) {
+        var table = this.table;
+        for (int i = 0; i < table.ids.length; i++) {
+            if (table.offsets[i] != MISSING) {
+                consumer.accept(table.ids[i], table.offsets[i]);
+            }
+        }
+    }
+
+    private Table resize(int capacity) {
+        var resized = new Table(capacity);
+        var mask = capacity - 1;
+        forEach((id, offset) -> {
+            var i = resized.index(id);
+            while (resized.offsets[i] != MISSING) {
+                i = (i + 1) & mask;
+            }
+            resized.ids[i] = id;
+            resized.offsets[i] = offset;
+        });
+        return resized;
+    }
+
+    @FunctionalInterface
+    interface OffsetConsumer {
+
+        void accept(long id, long offset);
+    }
+
+    private static final class Table {
+
+        private final long[] ids;
+
+        private final long[] offsets;
+
+        private final int shift;
+
+        private Table(int capacity) {
+            ids = new long[capacity];
+            offsets = new long[capacity];
+            Arrays.fill(offsets, MISSING);
+            shift = Long.numberOfLeadingZeros(capacity - 1);
+        }
+
+        private int index(long id) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+    }
+}
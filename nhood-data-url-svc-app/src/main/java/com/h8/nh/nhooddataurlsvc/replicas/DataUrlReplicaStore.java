@@ -0,0 +1,315 @@
+package com.h8.nh.nhooddataurlsvc.replicas;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlReplicaProperties;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics.PREFIX;
+
+/**
+ * Read replica of every entry, kept off the heap for read-heavy deployments
+ * with millions of entries. The database stays the system of record; the
+ * service writes through to the replica after each commit and serves reads
+ * by id from it.
+ *
+ * <p>Each entry is one record appended to direct byte buffers: the URL as
+ * UTF-8 followed by the codes of its key segments in a
+ * {@link DataUrlSegmentDictionary}. Ids map to record offsets in a
+ * {@link DataUrlOffsetMap}, so the heap holds a handful of primitive arrays
+ * and the distinct segments rather than objects per entry. Records are never
+ * changed in place; updates append and removals only unmap, and the buffers
+ * are compacted once more than half of them is garbage.
+ *
+ * <p>Writes are serialized. Reads are optimistic: they resolve the offset
+ * without locking and decode the record only once no write has run in the
+ * meantime. The lookup itself neither boxes nor copies; a read allocates
+ * only the DTO it returns, whose key segments are the shared dictionary
+ * strings.
+ * When disabled the store holds nothing and finds nothing.
+ */
+@Component
+public class DataUrlReplicaStore {
+
+    static final String ENTRIES = PREFIX + ".replica.entries";
+
+    static final String OFF_HEAP = PREFIX + ".replica.off_heap";
+
+    private static final ByteBuffer[] NO_CHUNKS = new ByteBuffer[0];
+
+    private static final int MAXIMUM_SEGMENTS = 0xFFFF;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private final boolean enabled;
+
+    private final int chunkSize;
+
+    private final StampedLock lock = new StampedLock();
+
+    private DataUrlOffsetMap offsets = new DataUrlOffsetMap();
+
+    private DataUrlSegmentDictionary segments = new DataUrlSegmentDictionary();
+
+    private ByteBuffer[] chunks = NO_CHUNKS;
+
+    private long garbage;
+
+    @Autowired
+    public DataUrlReplicaStore(
+            DataUrlReplicaProperties properties,
+            MeterRegistry registry) {
+        this(properties);
+        if (enabled) {
+            Gauge.builder(ENTRIES, this, DataUrlReplicaStore::size)
+                    .description("Entries held by the read replica")
+                    .register(registry);
+            Gauge.builder(OFF_HEAP, this, DataUrlReplicaStore::offHeapBytes)
+                    .description("Direct memory allocated by the read replica")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    DataUrlReplicaStore(DataUrlReplicaProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.chunkSize = Math.toIntExact(properties.getChunkSize().toBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void put(Long id, List<String> key, String url) {
+        if (!enabled) {
+            return;
+        }
+        var bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (key.size() > MAXIMUM_SEGMENTS) {
+            throw new IllegalArgumentException("Key of entry " + id + " has too many segments: " + key.size());
+        }
+        var stamp = lock.writeLock();
+        try {
+            var offset = append(bytes, key);
+            release(offsets.put(id, offset));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(Long id) {
+        if (!enabled) {
+            return;
+        }
+        var stamp = lock.writeLock();
+        try {
+            release(offsets.remove(id));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        var stamp = lock.writeLock();
+        try {
+            offsets = new DataUrlOffsetMap();
+            segments = new DataUrlSegmentDictionary();
+            chunks = NO_CHUNKS;
+            garbage = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Optional<DataUrlResponseDTO> find(Long id) {
+        return Optional.ofNullable(read(id));
+    }
+
+    /**
+     * Finds the entries of the given ids that exist, keyed by id.
+     */
+    public Map<Long, DataUrlResponseDTO> findAll(List<Long> ids) {
+        var result = new HashMap<Long, DataUrlResponseDTO>(ids.size() * 2);
+        for (var id : ids) {
+            var entry = read(id);
+            if (entry != null) {
+                result.put(id, entry);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        var stamp = lock.readLock();
+        try {
+            return offsets.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long offHeapBytes() {
+        var stamp = lock.readLock();
+        try {
+            var allocated = 0L;
+            for (var chunk : chunks) {
+                allocated += chunk.capacity();
+            }
+            return allocated;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private DataUrlResponseDTO read(long id) {
+        var stamp = lock.tryOptimisticRead();
+        var offset = stamp == 0 ? DataUrlOffsetMap.MISSING : offsets.get(id);
+        var chunks = this.chunks;
+        var segments = this.segments;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                offset = offsets.get(id);
+                chunks = this.chunks;
+                segments = this.segments;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return offset == DataUrlOffsetMap.MISSING ? null : decode(id, chunks, segments, offset);
+    }
+
+    /**
+     * Decodes the record at {@code offset}. Safe without the lock as records
+     * are immutable, and the buffers and dictionary they were read from stay
+     * reachable even if the store is compacted or cleared meanwhile.
+     */
+    private static DataUrlResponseDTO decode(
+            long id,
+            ByteBuffer[] chunks,
+            DataUrlSegmentDictionary segments,
+            long offset) {
+        var chunk = chunks[(int) (offset >>> 32)];
+        var position = (int) offset;
+        var length = chunk.getInt(position);
+        position += Integer.BYTES;
+        var bytes = scratch(length);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = chunk.get(position + i);
+        }
+        position += length;
+        var key = new String[Short.toUnsignedInt(chunk.getShort(position))];
+        position += Short.BYTES;
+        for (int i = 0; i < key.length; i++, position += Integer.BYTES) {
+            key[i] = segments.decode(chunk.getInt(position));
+        }
+        var dto = new DataUrlResponseDTO();
+        dto.setId(id);
+        dto.setKey(Arrays.asList(key));
+        dto.setUrl(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        return dto;
+    }
+
+    private long append(byte[] url, List<String> key) {
+        var chunk = reserve(Integer.BYTES + url.length + Short.BYTES + key.size() * Integer.BYTES);
+        var offset = offset(chunk);
+        chunk.putInt(url.length);
+        chunk.put(url);
+        chunk.putShort((short) key.size());
+        for (var segment : key) {
+            chunk.putInt(segments.encode(segment));
+        }
+        return offset;
+    }
+
+    private void release(long offset) {
+        if (offset == DataUrlOffsetMap.MISSING) {
+            return;
+        }
+        garbage += length(chunks, offset);
+        if (garbage > chunkSize && garbage * 2 > used()) {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the live records into new buffers. Readers holding offsets into
+     * the old ones finish on them; the old buffers are freed by the garbage
+     * collector once the last such reader is done.
+     */
+    private void compact() {
+        var from = chunks;
+        var compacted = new DataUrlOffsetMap();
+        chunks = NO_CHUNKS;
+        garbage = 0;
+        offsets.forEach((id, offset) -> {
+            var source = from[(int) (offset >>> 32)];
+            var position = (int) offset;
+            var length = length(from, offset);
+            var chunk = reserve(length);
+            compacted.put(id, offset(chunk));
+            for (int i = 0; i < length; i++) {
+                chunk.put(source.get(position + i));
+            }
+        });
+        offsets = compacted;
+    }
+
+    /**
+     * Returns the buffer to append a record of {@code length} bytes to,
+     * allocating a new one when the last is full.
+     */
+    private ByteBuffer reserve(int length) {
+        var chunk = chunks.length == 0 ? null : chunks[chunks.length - 1];
+        if (chunk == null || chunk.remaining() < length) {
+            chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = chunk;
+        }
+        return chunk;
+    }
+
+    private long offset(ByteBuffer chunk) {
+        return (long) (chunks.length - 1) << 32 | chunk.position();
+    }
+
+    private long used() {
+        var used = 0L;
+        for (var chunk : chunks) {
+            used += chunk.position();
+        }
+        return used;
+    }
+
+    private static int length(ByteBuffer[] chunks, long offset) {
+        var chunk = chunks[(int) (offset >>> 32)];
+        var position = (int) offset;
+        var url = chunk.getInt(position);
+        var key = Short.toUnsignedInt(chunk.getShort(position + Integer.BYTES + url));
+        return Integer.BYTES + url + Short.BYTES + key * Integer.BYTES;
+    }
+
+    private static byte[] scratch(int length) {
+        var bytes = SCRATCH.get();
+        if (bytes.length < length) {
+            bytes = new byte[Integer.highestOneBit(length) << 1];
+            SCRATCH.set(bytes);
+        }
+        return bytes;
+    }
+}
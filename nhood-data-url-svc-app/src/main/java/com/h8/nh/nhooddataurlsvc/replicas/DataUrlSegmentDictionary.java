@@ -0,0 +1,79 @@
+package com.h8.nh.nhooddataurlsvc.replicas;
+
+import java.util.Arrays;
+
+/**
+ * Numbers distinct key segments, so records refer to a segment by a four
+ * byte code and every occurrence of a segment is served from one shared
+ * string. Segments are looked up through an open addressing table of codes
+ * rather than a map, which keeps the overhead per distinct segment to a few
+ * array slots besides the string itself. Codes are never reused; the
+ * dictionary only grows, which suits keys drawn from a limited vocabulary.
+ *
+ * <p>Writes must be serialized. Lookups by code may run concurrently with
+ * them for codes published before the lookup.
+ */
+final class DataUrlSegmentDictionary {
+
+    private static final int NO_CODE = -1;
+
+    private int[] table = empty(64);
+
+    private volatile String[] segments = new String[64];
+
+    private int size;
+
+    int encode(String segment) {
+        var mask = table.length - 1;
+        var i = slot(segment, mask);
+        for (var code = table[i]; code != NO_CODE; code = table[i]) {
+            if (segments[code].equals(segment)) {
+                return code;
+            }
+            i = (i + 1) & mask;
+        }
+        var code = size++;
+        var segments = this.segments;
+        if (code == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        segments[code] = segment;
+        this.segments = segments;
+        table[i] = code;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    String decode(int code) {
+        return segments[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        table = empty(table.length * 2);
+        var mask = table.length - 1;
+        for (int code = 0; code < size; code++) {
+            var i = slot(segments[code], mask);
+            while (table[i] != NO_CODE) {
+                i = (i + 1) & mask;
+            }
+            table[i] = code;
+        }
+    }
+
+    private static int slot(String segment, int mask) {
+        var hash = segment.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int[] empty(int capacity) {
+        var table = new int[capacity];
+        Arrays.fill(table, NO_CODE);
+        return table;
+    }
+}
@@ -0,0 +1,137 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlDictionary;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Read side of the data url table. Each entry is one row holding its key and
+ * URL in dictionary codes, which are decoded straight into response DTOs, so
+ * reads never join, nor create managed entities, snapshots or collection
+ * wrappers.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class DataUrlQueryRepository {
+
+    static final int FETCH_SIZE = 500;
+
+    static final int IN_CLAUSE_SIZE = 1000;
+
+    private static final String SELECT =
+            "select id, url_codes, key_codes from data_url ";
+
+    private static final String FIND_ALL =
+            SELECT + "order by id";
+
+    private static final String FIND_BY_ID =
+            SELECT + "where id = :id";
+
+    private static final String FIND_ALL_BY_ID =
+            SELECT + "where id in (:ids) order by id";
+
+    private static final String FIND_PAGE =
+            SELECT + "where id > :after order by id limit :limit";
+
+    private static final String FIND_ALL_VERSIONS =
+            "select id, version, last_modified from data_url";
+
+    private static final String FIND_ALL_ENTRIES =
+            SELECT;
+
+    private static final String FIND_ALL_KEYS =
+            "select id, key_codes from data_url";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final DataUrlDictionary dictionary;
+
+    private final RowMapper<DataUrlResponseDTO> mapper;
+
+    @Autowired
+    public DataUrlQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, DataUrlDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+        this.mapper = (rs, i) -> {
+            var dto = new DataUrlResponseDTO();
+            dto.setId(rs.getLong(1));
+            dto.setUrl(dictionary.decodeUrl(rs.getBytes(2)));
+            dto.setKey(dictionary.decodeKey(rs.getBytes(3)));
+            return dto;
+        };
+    }
+
+    public void streamAll(Consumer<DataUrlResponseDTO> consumer) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            var statement = connection.prepareStatement(FIND_ALL);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    public void streamVersions(Consumer<DataUrlVersion> consumer) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            var statement = connection.prepareStatement(FIND_ALL_VERSIONS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(new DataUrlVersion(
+                rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toInstant())));
+    }
+
+    /**
+     * Reads every entry in storage order, like {@link #findAllKeys()}, so
+     * the key and URL of an entry always come from the same row.
+     */
+    public void streamEntries(Consumer<DataUrlResponseDTO> consumer) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            var statement = connection.prepareStatement(FIND_ALL_ENTRIES);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    /**
+     * Reads the key of every entry, in storage order rather than through the
+     * primary key, which is several times faster on a large table.
+     */
+    public Map<Long, List<String>> findAllKeys() {
+        var keys = new HashMap<Long, List<String>>();
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            var statement = connection.prepareStatement(FIND_ALL_KEYS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> keys.put(rs.getLong(1), dictionary.decodeKey(rs.getBytes(2))));
+        return keys;
+    }
+
+    public Optional<DataUrlResponseDTO> findById(Long id) {
+        var result = jdbcTemplate.query(FIND_BY_ID, Map.of("id", id), mapper);
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    public List<DataUrlResponseDTO> findAllById(List<Long> ids) {
+        var result = new ArrayList<DataUrlResponseDTO>(ids.size());
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_SIZE) {
+            var chunk = ids.subList(from, Math.min(from + IN_CLAUSE_SIZE, ids.size()));
+            result.addAll(jdbcTemplate.query(FIND_ALL_BY_ID, Map.of("ids", chunk), mapper));
+        }
+        return result;
+    }
+
+    public List<DataUrlResponseDTO> findPage(Long after, int limit) {
+        return jdbcTemplate.query(FIND_PAGE, Map.of("after", after, "limit", limit), mapper);
+    }
+}
@@ -5,5 +5,5 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface DataUrlRepository extends CrudRepository<DataUrl, Long> {
+public interface DataUrlRepository extends CrudRepository<DataUrl, Long>, DataUrlRepositoryCustom {
 }
@@ -0,0 +1,36 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface DataUrlRepositoryCustom {
+
+    /**
+     * Reserves {@link DataUrl#ID_ALLOCATION_SIZE} ids from the sequence
+     * entries are numbered with and returns the lowest of them. No id of
+     * the block is ever generated for an entry persisted through JPA.
+     */
+    long allocateIds();
+
+    /**
+     * Inserts entries whose ids were reserved with {@link #allocateIds()},
+     * as one batch, and returns them at their first version.
+     */
+    List<DataUrl> insertAll(List<DataUrl> entries);
+
+    /**
+     * Replaces the key and URL of an entry. When {@code entry} has a
+     * version, nothing is updated unless the stored entry is at that
+     * version.
+     */
+    Optional<DataUrlVersion> updateById(Long id, DataUrl entry);
+
+    List<DataUrlVersion> updateAllById(List<DataUrl> entries);
+
+    int removeById(Long id);
+
+    int[] removeAllById(List<Long> ids);
+}
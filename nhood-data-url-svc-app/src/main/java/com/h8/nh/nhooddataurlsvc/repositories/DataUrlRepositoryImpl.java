@@ -0,0 +1,148 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlDictionary;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Write paths that address rows by id without loading them first. Affected
+ * row counts tell the caller whether the entry existed. Key and URL are
+ * columns of the entry row, encoded with {@link DataUrlDictionary}; new
+ * segments and prefixes are registered up front in one batch each, so an
+ * update is a single statement once they are known. Updates bump the
+ * version and read it back as a generated key, so no extra select is
+ * needed. A single update of an entry that carries a version only applies
+ * while the row is still at that version. Entries can also be inserted
+ * with ids reserved ahead from the entry sequence.
+ */
+class DataUrlRepositoryImpl implements DataUrlRepositoryCustom {
+
+    private static final String NEXT_ID_BLOCK =
+            "select next value for data_url_seq";
+
+    private static final String INSERT_URL =
+            "insert into data_url (id, key_codes, url_codes, version, last_modified) values (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_URL =
+            "update data_url set url_codes = ?, key_codes = ?, version = version + 1, last_modified = ? "
+                    + "where id = ?";
+
+    private static final String UPDATE_URL_AT_VERSION =
+            UPDATE_URL + " and version = ?";
+
+    private static final String[] VERSION_COLUMNS = {"id", "version"};
+
+    private static final String DELETE_URL =
+            "delete from data_url where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataUrlDictionary dictionary;
+
+    @Autowired
+    DataUrlRepositoryImpl(JdbcTemplate jdbcTemplate, DataUrlDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public long allocateIds() {
+        return jdbcTemplate.queryForObject(NEXT_ID_BLOCK, Long.class);
+    }
+
+    @Override
+    @Transactional
+    public List<DataUrl> insertAll(List<DataUrl> entries) {
+        dictionary.register(entries);
+        var inserted = new ArrayList<DataUrl>(entries.size());
+        for (var entry : entries) {
+            inserted.add(DataUrl.builder()
+                    .id(entry.getId())
+                    .key(entry.getKey())
+                    .url(entry.getUrl())
+                    .version(0L)
+                    .lastModified(entry.getLastModified() != null ? entry.getLastModified() : Instant.now())
+                    .build());
+        }
+        jdbcTemplate.batchUpdate(INSERT_URL, inserted, inserted.size(), (statement, entry) -> {
+            statement.setLong(1, entry.getId());
+            statement.setBytes(2, dictionary.encodeKey(entry.getKey()));
+            statement.setBytes(3, dictionary.encodeUrl(entry.getUrl()));
+            statement.setLong(4, entry.getVersion());
+            statement.setTimestamp(5, Timestamp.from(entry.getLastModified()));
+        });
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public Optional<DataUrlVersion> updateById(Long id, DataUrl entry) {
+        var versions = update(List.of(DataUrl.builder()
+                .id(id)
+                .key(entry.getKey())
+                .url(entry.getUrl())
+                .version(entry.getVersion())
+                .build()), entry.getVersion() != null);
+        return versions.isEmpty() ? Optional.empty() : Optional.of(versions.get(0));
+    }
+
+    @Override
+    @Transactional
+    public List<DataUrlVersion> updateAllById(List<DataUrl> entries) {
+        return update(entries, false);
+    }
+
+    private List<DataUrlVersion> update(List<DataUrl> entries, boolean atVersion) {
+        dictionary.register(entries);
+        var lastModified = Instant.now();
+        var sql = atVersion ? UPDATE_URL_AT_VERSION : UPDATE_URL;
+        return jdbcTemplate.execute(
+                (PreparedStatementCreator) connection -> connection.prepareStatement(sql, VERSION_COLUMNS),
+                (PreparedStatementCallback<List<DataUrlVersion>>) statement -> {
+                    for (var entry : entries) {
+                        statement.setBytes(1, dictionary.encodeUrl(entry.getUrl()));
+                        statement.setBytes(2, dictionary.encodeKey(entry.getKey()));
+                        statement.setTimestamp(3, Timestamp.from(lastModified));
+                        statement.setLong(4, entry.getId());
+                        if (atVersion) {
+                            statement.setLong(5, entry.getVersion());
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    var versions = new ArrayList<DataUrlVersion>(entries.size());
+                    try (var keys = statement.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            versions.add(new DataUrlVersion(keys.getLong(1), keys.getLong(2), lastModified));
+                        }
+                    }
+                    return versions;
+                });
+    }
+
+    @Override
+    @Transactional
+    public int removeById(Long id) {
+        return jdbcTemplate.update(DELETE_URL, id);
+    }
+
+    @Override
+    @Transactional
+    public int[] removeAllById(List<Long> ids) {
+        return jdbcTemplate.batchUpdate(DELETE_URL, ids.stream()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList()));
+    }
+}
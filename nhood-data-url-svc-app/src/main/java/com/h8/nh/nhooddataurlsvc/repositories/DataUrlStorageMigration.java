@@ -0,0 +1,97 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlDictionary;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves entries written before keys and URLs were stored as dictionary
+ * codes, with the URL in a text column and every key segment in a row of
+ * {@code data_url_key}, to the coded columns, then drops the old table and
+ * column. Runs before the indexes are loaded, in chunks that commit one by
+ * one so an interrupted migration resumes where it stopped. Does nothing
+ * once the old table is gone.
+ */
+@Component
+public class DataUrlStorageMigration {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final String FIND_LEGACY_TABLE =
+            "select count(*) from information_schema.tables where lower(table_name) = 'data_url_key'";
+
+    private static final String FIND_UNMIGRATED =
+            "select d.id, d.url, k.key_segment "
+                    + "from (select id, url from data_url where key_codes is null order by id limit ?) d "
+                    + "left join data_url_key k on k.data_url_id = d.id order by d.id, k.key_order";
+
+    private static final String UPDATE_CODES =
+            "update data_url set url_codes = ?, key_codes = ? where id = ?";
+
+    private static final String DROP_LEGACY_TABLE =
+            "drop table data_url_key";
+
+    private static final String DROP_LEGACY_COLUMN =
+            "alter table data_url drop column url";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataUrlDictionary dictionary;
+
+    @Autowired
+    DataUrlStorageMigration(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            DataUrlDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dictionary = dictionary;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ContextRefreshedEvent.class)
+    public void migrate() {
+        if (jdbcTemplate.queryForObject(FIND_LEGACY_TABLE, Integer.class) == 0) {
+            return;
+        }
+        List<DataUrl> chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> migrateChunk());
+        } while (chunk.size() == CHUNK_SIZE);
+        jdbcTemplate.execute(DROP_LEGACY_TABLE);
+        jdbcTemplate.execute(DROP_LEGACY_COLUMN);
+    }
+
+    private List<DataUrl> migrateChunk() {
+        var entries = new LinkedHashMap<Long, DataUrl>();
+        jdbcTemplate.query(FIND_UNMIGRATED, (RowCallbackHandler) rs -> {
+            var entry = entries.computeIfAbsent(rs.getLong(1), id -> new DataUrl(id, new ArrayList<>(), null, null, null));
+            entry.setUrl(rs.getString(2));
+            var segment = rs.getString(3);
+            if (segment != null) {
+                entry.getKey().add(segment);
+            }
+        }, CHUNK_SIZE);
+        var chunk = new ArrayList<>(entries.values());
+        dictionary.register(chunk);
+        jdbcTemplate.batchUpdate(UPDATE_CODES, chunk.stream()
+                .map(l -> new Object[]{dictionary.encodeUrl(l.getUrl()), dictionary.encodeKey(l.getKey()), l.getId()})
+                .collect(Collectors.toList()));
+        return chunk;
+    }
+}
@@ -1,53 +1,443 @@
 package com.h8.nh.nhooddataurlsvc.services;
 
+import com.h8.nh.nhooddataurlsvc.buffers.DataUrlWriteBuffer;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlCache;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlReadFlights;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlChangeLog;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlChangeSubscription;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlBatchProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlConcurrencyProperties;
 import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlKeyNode;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlKeyIndex;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import com.h8.nh.nhooddataurlsvc.locks.DataUrlStripedLocks;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
+import com.h8.nh.nhooddataurlsvc.replicas.DataUrlReplicaStore;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlQueryRepository;
 import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Service
 public class DataUrlService {
 
     private final DataUrlRepository repository;
 
+    private final DataUrlQueryRepository queryRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataUrlKeyIndex keyIndex;
+
+    private final DataUrlVersionIndex versionIndex;
+
+    private final DataUrlCache cache;
+
+    private final DataUrlReadFlights flights;
+
+    private final DataUrlReplicaStore replica;
+
+    private final DataUrlChangeLog changeLog;
+
+    private final DataUrlStripedLocks locks;
+
+    private final DataUrlWriteBuffer writeBuffer;
+
+    private final DataUrlMetrics metrics;
+
+    private final DataUrlBatchProperties batchProperties;
+
+    private final DataUrlConcurrencyProperties concurrencyProperties;
+
     @Autowired
-    DataUrlService(DataUrlRepository repository) {
+    DataUrlService(
+            DataUrlRepository repository,
+            DataUrlQueryRepository queryRepository,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            DataUrlKeyIndex keyIndex,
+            DataUrlVersionIndex versionIndex,
+            DataUrlCache cache,
+            DataUrlReadFlights flights,
+            DataUrlReplicaStore replica,
+            DataUrlChangeLog changeLog,
+            DataUrlStripedLocks locks,
+            DataUrlWriteBuffer writeBuffer,
+            DataUrlMetrics metrics,
+            DataUrlBatchProperties batchProperties,
+            DataUrlConcurrencyProperties concurrencyProperties) {
         this.repository = repository;
+        this.queryRepository = queryRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.keyIndex = keyIndex;
+        this.versionIndex = versionIndex;
+        this.cache = cache;
+        this.flights = flights;
+        this.replica = replica;
+        this.changeLog = changeLog;
+        this.locks = locks;
+        this.writeBuffer = writeBuffer;
+        this.metrics = metrics;
+        this.batchProperties = batchProperties;
+        this.concurrencyProperties = concurrencyProperties;
+        writeBuffer.flushTo(repository::insertAll, l -> l.forEach(this::created));
+    }
+
+    /**
+     * Loads the key and version indexes, which is what a restart on
+     * persistent storage waits for. Each is read with its own scan of a
+     * single table, the two running side by side. With the read replica
+     * enabled, keys are read together with the URLs, so an entry created
+     * while the scan runs is either in both or in neither.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void rebuildIndexes() {
+        keyIndex.clear();
+        versionIndex.clear();
+        replica.clear();
+        var versions = CompletableFuture.runAsync(() -> queryRepository.streamVersions(versionIndex::put));
+        if (replica.isEnabled()) {
+            var keys = new HashMap<Long, List<String>>();
+            queryRepository.streamEntries(l -> {
+                keys.put(l.getId(), l.getKey());
+                replica.put(l.getId(), l.getKey(), l.getUrl());
+            });
+            keyIndex.putAll(keys);
+        } else {
+            keyIndex.putAll(queryRepository.findAllKeys());
+        }
+        versions.join();
+    }
+
+    public void findAll(Consumer<DataUrlResponseDTO> consumer) {
+        queryRepository.streamAll(consumer);
+    }
+
+    /**
+     * Reads a page. Identical page reads running at the same time share one
+     * query, and the page they share is unmodifiable.
+     */
+    public List<DataUrlResponseDTO> findPage(Long after, int limit) {
+        return flights.findPage(after, limit, queryRepository::findPage);
+    }
+
+    /**
+     * Reads an entry from the replica, or else from the cache. Cache misses
+     * for the same id running at the same time share one query.
+     */
+    public Optional<DataUrlResponseDTO> findById(Long id) {
+        if (replica.isEnabled()) {
+            return replica.find(id);
+        }
+        var cached = cache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return flights.findById(id, l -> cache.load(l, queryRepository::findById));
     }
 
-    public List<DataUrl> findAll() {
-        return StreamSupport.stream(repository.findAll().spliterator(), false)
+    /**
+     * Reads the entries of {@code ids} in the order asked for, each once.
+     * Ids without an entry are left out. Entries missing from the cache are
+     * read with IN queries of bounded size, and cached.
+     */
+    public List<DataUrlResponseDTO> findAllById(List<Long> ids) {
+        var distinct = ids.stream()
+                .distinct()
                 .collect(Collectors.toList());
+        var found = lookUpAll(distinct);
+        return distinct.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<DataUrlVersion> findVersion(Long id) {
+        return versionIndex.find(id);
+    }
+
+    public String collectionTag() {
+        return versionIndex.collectionTag();
+    }
+
+    public Instant collectionLastModified() {
+        return versionIndex.collectionLastModified();
     }
 
-    public Optional<DataUrl> findById(Long id) {
-        return repository.findById(id);
+    public long changeSequence() {
+        return changeLog.sequence();
     }
 
+    public Optional<List<DataUrlChange>> findChanges(long since, int limit) {
+        return changeLog.findSince(since, limit);
+    }
+
+    public DataUrlChangeSubscription subscribeToChanges(
+            long since,
+            Consumer<List<DataUrlChange>> consumer,
+            Runnable onCompacted) {
+        return changeLog.subscribe(since, consumer, onCompacted);
+    }
+
+    public List<DataUrlResponseDTO> findByKey(List<String> key) {
+        return findAllSortedById(keyIndex.findByKey(key));
+    }
+
+    public List<DataUrlResponseDTO> findByKeyPrefix(List<String> prefix) {
+        return findAllSortedById(keyIndex.findByKeyPrefix(prefix));
+    }
+
+    /**
+     * Lists the key tree at {@code key} with the entries registered exactly
+     * under it.
+     */
+    public Optional<DataUrlTreeResponseDTO> findTree(List<String> key) {
+        return keyIndex.findNode(key).map(this::toTreeDTO);
+    }
+
+    /**
+     * Resolves the longest key with entries that is a prefix of {@code key}
+     * and lists the key tree there.
+     */
+    public Optional<DataUrlTreeResponseDTO> findTreeByLongestPrefix(List<String> key) {
+        return keyIndex.findLongestPrefix(key).map(this::toTreeDTO);
+    }
+
+    /**
+     * Stores a new entry. With write-behind enabled, the entry is queued
+     * with a reserved id and returned before it is stored; it is written
+     * through only when the buffer refuses it.
+     */
     public DataUrl create(DataUrl entry) {
-        return repository.save(entry);
+        var buffered = writeBuffer.offer(entry);
+        if (buffered.isPresent()) {
+            return buffered.get();
+        }
+        var result = repository.save(entry);
+        created(result);
+        return result;
+    }
+
+    /**
+     * Persists entries in chunks of {@code nhood.data-url.batch.chunk-size},
+     * one transaction per chunk, so inserts go out as JDBC batches and the
+     * persistence context is cleared between chunks.
+     */
+    public List<DataUrl> createAll(List<DataUrl> entries) {
+        return inChunks(entries, chunk -> {
+            var created = new ArrayList<DataUrl>(chunk.size());
+            repository.saveAll(chunk).forEach(created::add);
+            return created;
+        }, created -> created.forEach(this::created));
     }
 
+    /**
+     * Replaces an entry with a single update. When {@code entry} has a
+     * version, the update only applies while the entry is at that version,
+     * and fails with {@link OptimisticLockingFailureException} otherwise.
+     * Updates that fail on a transient database concurrency error are
+     * retried, up to {@code nhood.data-url.concurrency.maximum-attempts}.
+     * An entry still in the write-behind buffer is flushed first.
+     */
     public Optional<DataUrl> modify(Long id, DataUrl entry) {
-        return repository.findById(id)
-                .map(l -> {
-                    l.setKey(entry.getKey());
-                    l.setUrl(entry.getUrl());
-                    repository.save(l);
-                    return l;
-                });
-    }
-
-    public Optional<DataUrl> delete(Long id) {
-        return repository.findById(id)
-                .map(l -> {
-                    repository.delete(l);
-                    return l;
-                });
+        writeBuffer.awaitFlushed(id);
+        return locks.write(id, () -> {
+            var version = retrying(() -> repository.updateById(id, entry));
+            if (!version.isPresent() && entry.getVersion() != null && versionIndex.find(id).isPresent()) {
+                throw new OptimisticLockingFailureException(
+                        String.format("Entry %d is not at version %d", id, entry.getVersion()));
+            }
+            return version.map(l -> {
+                var modified = modified(entry, l);
+                upserted(modified);
+                return modified;
+            });
+        });
+    }
+
+    public List<Long> modifyAll(List<DataUrl> entries) {
+        entries.forEach(l -> writeBuffer.awaitFlushed(l.getId()));
+        var byId = byId(entries);
+        var modified = inChunks(entries, repository::updateAllById, versions -> versions.forEach(l ->
+                upserted(modified(byId.get(l.getId()), l))));
+        return modified.stream()
+                .map(DataUrlVersion::getId)
+                .collect(Collectors.toList());
+    }
+
+    public boolean delete(Long id) {
+        writeBuffer.awaitFlushed(id);
+        return locks.write(id, () -> {
+            if (retrying(() -> repository.removeById(id)) == 0) {
+                return false;
+            }
+            deleted(id);
+            return true;
+        });
+    }
+
+    public List<Long> deleteAll(List<Long> ids) {
+        ids.forEach(writeBuffer::awaitFlushed);
+        return inChunks(ids, chunk -> {
+            var removed = repository.removeAllById(chunk);
+            var deleted = new ArrayList<Long>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (removed[i] > 0) {
+                    deleted.add(chunk.get(i));
+                }
+            }
+            return deleted;
+        }, deleted -> deleted.forEach(this::deleted));
+    }
+
+    private void created(DataUrl entry) {
+        keyIndex.put(entry.getId(), entry.getKey());
+        replica.put(entry.getId(), entry.getKey(), entry.getUrl());
+        flights.forget(entry.getId());
+        versionIndex.put(version(entry));
+        changeLog.upserted(entry);
+    }
+
+    /**
+     * Publishes a committed update to the indexes, the cache and the change
+     * log, unless a newer version of the entry or its deletion has been
+     * published already.
+     * The cache entry is invalidated before the new version is published,
+     * so a reader that sees the new version never gets the old body.
+     */
+    private void upserted(DataUrl entry) {
+        locks.publish(entry.getId(), () -> {
+            if (versionIndex.isDeleted(entry.getId())) {
+                return;
+            }
+            var published = versionIndex.find(entry.getId());
+            if (published.isPresent() && published.get().getVersion() >= entry.getVersion()) {
+                return;
+            }
+            keyIndex.put(entry.getId(), entry.getKey());
+            replica.put(entry.getId(), entry.getKey(), entry.getUrl());
+            cache.invalidate(entry.getId());
+            flights.forget(entry.getId());
+            versionIndex.put(version(entry));
+            changeLog.upserted(entry);
+        });
+    }
+
+    private void deleted(Long id) {
+        locks.publish(id, () -> {
+            keyIndex.remove(id);
+            replica.remove(id);
+            cache.invalidate(id);
+            flights.forget(id);
+            versionIndex.remove(id);
+            changeLog.deleted(id);
+        });
+    }
+
+    private <T> T retrying(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= concurrencyProperties.getMaximumAttempts()) {
+                    throw e;
+                }
+                metrics.writeRetried();
+            }
+        }
+    }
+
+    private <T, R> List<R> inChunks(
+            List<T> items,
+            Function<List<T>, List<R>> work,
+            Consumer<List<R>> afterCommit) {
+        var result = new ArrayList<R>(items.size());
+        var chunkSize = batchProperties.getChunkSize();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            var chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            var processed = transactionTemplate.execute(status -> {
+                var r = work.apply(chunk);
+                entityManager.flush();
+                entityManager.clear();
+                return r;
+            });
+            afterCommit.accept(processed);
+            result.addAll(processed);
+        }
+        return result;
+    }
+
+    private DataUrlTreeResponseDTO toTreeDTO(DataUrlKeyNode node) {
+        return DataUrlMapper.toTreeDTO(node, findAllSortedById(node.getIds()));
+    }
+
+    private List<DataUrlResponseDTO> findAllSortedById(List<Long> ids) {
+        return lookUpAll(ids).values()
+                .stream()
+                .sorted(Comparator.comparing(DataUrlResponseDTO::getId))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, DataUrlResponseDTO> lookUpAll(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return replica.isEnabled()
+                ? replica.findAll(ids)
+                : cache.getAll(ids, this::loadAllById);
+    }
+
+    private Map<Long, DataUrlResponseDTO> loadAllById(List<Long> ids) {
+        return flights.findAllById(ids, l -> queryRepository.findAllById(l)
+                .stream()
+                .collect(Collectors.toMap(DataUrlResponseDTO::getId, m -> m)));
+    }
+
+    private static DataUrlVersion version(DataUrl entry) {
+        return new DataUrlVersion(entry.getId(), entry.getVersion(), entry.getLastModified());
+    }
+
+    private static DataUrl modified(DataUrl entry, DataUrlVersion version) {
+        return DataUrl.builder()
+                .id(version.getId())
+                .key(entry.getKey())
+                .url(entry.getUrl())
+                .version(version.getVersion())
+                .lastModified(version.getLastModified())
+                .build();
+    }
+
+    private static Map<Long, DataUrl> byId(List<DataUrl> entries) {
+        return entries.stream()
+                .collect(Collectors.toMap(DataUrl::getId, l -> l, (l, r) -> r));
     }
 }
@@ -0,0 +1,173 @@
+package com.h8.nh.nhooddataurlsvc.services;
+
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlChangeSubscription;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlExecutionProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking facade over {@link DataUrlService}. JDBC calls run on a
+ * dedicated pool sized to the connection permits, so event loop threads
+ * never block and at most that many calls wait on the database. The cache,
+ * indexes and write path are shared with the servlet stack. Version lookups
+ * and change log reads are in-memory and answered directly.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataUrlService implements DisposableBean {
+
+    static final int FIND_ALL_PAGE_SIZE = 500;
+
+    private final DataUrlService service;
+
+    private final Scheduler scheduler;
+
+    @Autowired
+    ReactiveDataUrlService(
+            DataUrlService service,
+            DataUrlExecutionProperties executionProperties) {
+        this.service = service;
+        var threads = new AtomicInteger();
+        this.scheduler = Schedulers.fromExecutorService(Executors.newFixedThreadPool(
+                Math.max(1, executionProperties.getConnectionPermits()),
+                l -> {
+                    var thread = new Thread(l, "data-url-jdbc-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Streams all entries in id order. Pages are read one at a time and only
+     * when the subscriber has requested more than has been delivered.
+     */
+    public Flux<DataUrlResponseDTO> findAll() {
+        return findAllPages()
+                .concatMapIterable(l -> l);
+    }
+
+    /**
+     * Streams all entries in id order, a page of them at a time.
+     */
+    public Flux<List<DataUrlResponseDTO>> findAllPages() {
+        return page(0L)
+                .expand(l -> l.size() < FIND_ALL_PAGE_SIZE
+                        ? Mono.empty()
+                        : page(l.get(l.size() - 1).getId()));
+    }
+
+    public Mono<List<DataUrlResponseDTO>> findPage(Long after, int limit) {
+        return async(() -> service.findPage(after, limit));
+    }
+
+    public Mono<DataUrlResponseDTO> findById(Long id) {
+        return async(() -> service.findById(id))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<List<DataUrlResponseDTO>> findAllById(List<Long> ids) {
+        return async(() -> service.findAllById(ids));
+    }
+
+    public Optional<DataUrlVersion> findVersion(Long id) {
+        return service.findVersion(id);
+    }
+
+    public String collectionTag() {
+        return service.collectionTag();
+    }
+
+    public Instant collectionLastModified() {
+        return service.collectionLastModified();
+    }
+
+    public long changeSequence() {
+        return service.changeSequence();
+    }
+
+    public Optional<List<DataUrlChange>> findChanges(long since, int limit) {
+        return service.findChanges(since, limit);
+    }
+
+    public DataUrlChangeSubscription subscribeToChanges(
+            long since,
+            Consumer<List<DataUrlChange>> consumer,
+            Runnable onCompacted) {
+        return service.subscribeToChanges(since, consumer, onCompacted);
+    }
+
+    public Mono<List<DataUrlResponseDTO>> findByKey(List<String> key) {
+        return async(() -> service.findByKey(key));
+    }
+
+    public Mono<List<DataUrlResponseDTO>> findByKeyPrefix(List<String> prefix) {
+        return async(() -> service.findByKeyPrefix(prefix));
+    }
+
+    public Mono<DataUrlTreeResponseDTO> findTree(List<String> key) {
+        return async(() -> service.findTree(key))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<DataUrlTreeResponseDTO> findTreeByLongestPrefix(List<String> key) {
+        return async(() -> service.findTreeByLongestPrefix(key))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<DataUrl> create(DataUrl entry) {
+        return async(() -> service.create(entry));
+    }
+
+    public Mono<List<DataUrl>> createAll(List<DataUrl> entries) {
+        return async(() -> service.createAll(entries));
+    }
+
+    public Mono<DataUrl> modify(Long id, DataUrl entry) {
+        return async(() -> service.modify(id, entry))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<List<Long>> modifyAll(List<DataUrl> entries) {
+        return async(() -> service.modifyAll(entries));
+    }
+
+    public Mono<Boolean> delete(Long id) {
+        return async(() -> service.delete(id));
+    }
+
+    public Mono<List<Long>> deleteAll(List<Long> ids) {
+        return async(() -> service.deleteAll(ids));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    private Mono<List<DataUrlResponseDTO>> page(Long after) {
+        return async(() -> service.findPage(after, FIND_ALL_PAGE_SIZE));
+    }
+
+    private <T> Mono<T> async(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+}
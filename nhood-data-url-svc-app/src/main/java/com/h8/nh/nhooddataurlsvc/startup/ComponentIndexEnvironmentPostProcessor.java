@@ -0,0 +1,37 @@
+package com.h8.nh.nhooddataurlsvc.startup;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.Ordered;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Uses the build-time component index, {@code META-INF/spring.components},
+ * only while Swagger is off, as in the {@code startup} profile. The index
+ * replaces classpath scanning, and springfox finds its own components by
+ * scanning, so with Swagger on the index is ignored. A
+ * {@code spring.index.ignore} set as a system property or in
+ * {@code spring.properties} is left alone; the tests set it that way,
+ * because they scan for the application class before this runs. Runs after
+ * the profile configuration is loaded and before any component is scanned.
+ */
+public class ComponentIndexEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    static final String SWAGGER_ENABLED = "nhood.data-url.swagger.enabled";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (SpringProperties.getProperty(CandidateComponentsIndexLoader.IGNORE_INDEX) != null) {
+            return;
+        }
+        var swagger = environment.getProperty(SWAGGER_ENABLED, Boolean.class, true);
+        SpringProperties.setProperty(CandidateComponentsIndexLoader.IGNORE_INDEX, String.valueOf(swagger));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,21 @@
+package com.h8.nh.nhooddataurlsvc.startup;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Marks all bean definitions lazy, so singletons are created when first
+ * needed instead of while the context starts. Spring Boot 2.1 has no
+ * {@code spring.main.lazy-initialization}; this does the same. Listeners
+ * still get their events, the index rebuild on refresh creates the service
+ * and what it depends on.
+ */
+public class LazyInitializationBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (var name : beanFactory.getBeanDefinitionNames()) {
+            beanFactory.getBeanDefinition(name).setLazyInit(true);
+        }
+    }
+}
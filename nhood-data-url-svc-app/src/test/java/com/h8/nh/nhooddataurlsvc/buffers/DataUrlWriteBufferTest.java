@@ -0,0 +1,312 @@
+package com.h8.nh.nhooddataurlsvc.buffers;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlWriteBehindProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataUrlWriteBufferTest {
+
+    private DataUrlWriteBehindProperties properties;
+
+    private DataUrlRepository repository;
+
+    private SimpleMeterRegistry registry;
+
+    private List<List<DataUrl>> flushed;
+
+    private List<List<DataUrl>> published;
+
+    private DataUrlWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DataUrlWriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(3);
+        properties.setFlushInterval(Duration.ofMillis(10));
+        repository = mock(DataUrlRepository.class);
+        when(repository.allocateIds())
+                .thenReturn(1L, 51L, 101L);
+        registry = new SimpleMeterRegistry();
+        flushed = new CopyOnWriteArrayList<>();
+        published = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    @Test
+    void shouldAssignIdsFromReservedBlocksOnOffer() {
+        // given
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, published::add);
+
+        // when
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(buffer.offer(entry(i)).orElseThrow().getId());
+        }
+
+        // then
+        assertThat(ids).isEqualTo(LongStream.rangeClosed(1, 60).boxed().collect(Collectors.toList()));
+        verify(repository, times(2)).allocateIds();
+    }
+
+    @Test
+    void shouldFlushQueuedEntriesInBatchesInOfferOrder() throws Exception {
+        // given
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, published::add);
+
+        // when
+        var offered = new ArrayList<DataUrl>();
+        for (int i = 0; i < 7; i++) {
+            offered.add(buffer.offer(entry(i)).orElseThrow());
+        }
+        awaitFlushed(7);
+
+        // then
+        assertThat(flushed).allSatisfy(l -> assertThat(l.size()).isLessThanOrEqualTo(3));
+        assertThat(flushed.stream().flatMap(List::stream)).containsExactlyElementsOf(offered);
+        assertThat(offered.get(0).getKey()).containsExactly("KEY0");
+        assertThat(offered.get(0).getUrl()).isEqualTo("URL0");
+        assertThat(offered.get(0).getLastModified()).isNotNull();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void shouldRefuseEntryWhenFullOnOffer() throws Exception {
+        // given
+        properties.setCapacity(4);
+        var release = new CountDownLatch(1);
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(l -> {
+            await(release);
+            flushed.add(l);
+            return l;
+        }, published::add);
+        var accepted = 0;
+
+        // when
+        while (buffer.offer(entry(accepted)).isPresent()) {
+            accepted++;
+        }
+
+        // then
+        assertThat(accepted).isBetween(4, 4 + 3);
+        assertThat(registry.get(DataUrlWriteBuffer.OVERFLOWS).counter().count()).isEqualTo(1);
+        release.countDown();
+        awaitFlushed(accepted);
+    }
+
+    @Test
+    void shouldFlushQueuedEntriesAndRefuseNewOnesOnClose() throws Exception {
+        // given
+        properties.setBatchSize(100);
+        properties.setFlushInterval(Duration.ofHours(1));
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, published::add);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(entry(i));
+        }
+
+        // when
+        buffer.close();
+
+        // then
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0)).hasSize(5);
+        assertThat(buffer.offer(entry(5))).isEmpty();
+    }
+
+    @Test
+    void shouldRetryFailedBatchUntilItIsStored() throws Exception {
+        // given
+        var attempts = new AtomicInteger();
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(l -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unavailable");
+            }
+            flushed.add(l);
+            return l;
+        }, published::add);
+
+        // when
+        buffer.offer(entry(0));
+        awaitFlushed(1);
+
+        // then
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(registry.get(DataUrlWriteBuffer.FAILURES).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropEntryThatCannotBeStoredAndFlushTheOthers() throws Exception {
+        // given
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(l -> {
+            if (l.stream().anyMatch(e -> e.getKey().contains("POISON"))) {
+                throw new NullPointerException();
+            }
+            flushed.add(l);
+            return l;
+        }, published::add);
+
+        // when
+        var first = buffer.offer(entry(0)).orElseThrow();
+        buffer.offer(DataUrl.builder().key(List.of("POISON")).url("URL1").build());
+        var third = buffer.offer(entry(2)).orElseThrow();
+        awaitFlushed(2);
+
+        // then
+        assertThat(flushed.stream().flatMap(List::stream)).containsExactly(first, third);
+        assertThat(registry.get(DataUrlWriteBuffer.DROPPED).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotDropEntryWhileDatabaseIsUnavailable() throws Exception {
+        // given
+        var attempts = new AtomicInteger();
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(l -> {
+            if (attempts.incrementAndGet() <= properties.getMaximumAttempts() + 1) {
+                throw new CannotGetJdbcConnectionException("database unavailable");
+            }
+            flushed.add(l);
+            return l;
+        }, published::add);
+
+        // when
+        buffer.offer(entry(0));
+        awaitFlushed(1);
+
+        // then
+        assertThat(attempts.get()).isEqualTo(properties.getMaximumAttempts() + 2);
+        assertThat(registry.get(DataUrlWriteBuffer.DROPPED).counter().count()).isZero();
+    }
+
+    @Test
+    void shouldNotStoreBatchAgainWhenPublishingFails() throws Exception {
+        // given
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, l -> {
+            throw new IllegalStateException("index unavailable");
+        });
+
+        // when
+        var entry = buffer.offer(entry(0)).orElseThrow();
+        buffer.awaitFlushed(entry.getId());
+
+        // then
+        assertThat(flushed).containsExactly(List.of(entry));
+        assertThat(registry.get(DataUrlWriteBuffer.FAILURES).counter().count()).isZero();
+        assertThat(registry.get(DataUrlWriteBuffer.DROPPED).counter().count()).isZero();
+    }
+
+    @Test
+    void shouldFailWhenEntryIsNotStoredInTimeOnAwaitFlushed() {
+        // given
+        properties.setFlushWaitTimeout(Duration.ofMillis(50));
+        var release = new CountDownLatch(1);
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(l -> {
+            await(release);
+            return store(l);
+        }, published::add);
+        var entry = buffer.offer(entry(0)).orElseThrow();
+
+        // when
+        var failure = catchThrowable(() -> buffer.awaitFlushed(entry.getId()));
+        release.countDown();
+
+        // then
+        assertThat(failure).isInstanceOf(TransientDataAccessResourceException.class);
+    }
+
+    @Test
+    void shouldFlushQueuedEntryAtOnceOnAwaitFlushed() {
+        // given
+        properties.setFlushInterval(Duration.ofHours(1));
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, published::add);
+        var entry = buffer.offer(entry(0)).orElseThrow();
+
+        // when
+        buffer.awaitFlushed(entry.getId());
+
+        // then
+        assertThat(flushed).containsExactly(List.of(entry));
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void shouldRefuseEntryWhenDisabledOnOffer() {
+        // given
+        properties.setEnabled(false);
+        buffer = new DataUrlWriteBuffer(properties, repository, registry);
+        buffer.flushTo(this::store, published::add);
+
+        // when
+        var offered = buffer.offer(entry(0));
+
+        // then
+        assertThat(offered).isEmpty();
+        assertThat(buffer.isEnabled()).isFalse();
+    }
+
+    private List<DataUrl> store(List<DataUrl> batch) {
+        flushed.add(batch);
+        return batch;
+    }
+
+    private void awaitFlushed(int count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flushed.stream().mapToInt(List::size).sum() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(flushed.stream().mapToInt(List::size).sum()).isEqualTo(count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DataUrl entry(int i) {
+        return DataUrl.builder()
+                .key(List.of("KEY" + i))
+                .url("URL" + i)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.h8.nh.nhooddataurlsvc.buffers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlWriteQueueTest {
+
+    @Test
+    void shouldDrainElementsInOfferOrderUpToLimitOnDrain() {
+        // given
+        var queue = new DataUrlWriteQueue<Integer>(8);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        var drained = new ArrayList<Integer>();
+
+        // when
+        var count = queue.drain(drained, 3);
+
+        // then
+        assertThat(count).isEqualTo(3);
+        assertThat(drained).containsExactly(0, 1, 2);
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRefuseElementWhenFullOnOffer() {
+        // given
+        var queue = new DataUrlWriteQueue<Integer>(3);
+        for (int i = 0; i < queue.capacity(); i++) {
+            queue.offer(i);
+        }
+
+        // when
+        var offered = queue.offer(4);
+
+        // then
+        assertThat(queue.capacity()).isEqualTo(4);
+        assertThat(offered).isFalse();
+        queue.drain(new ArrayList<>(), 1);
+        assertThat(queue.offer(4)).isTrue();
+    }
+
+    @Test
+    void shouldDeliverEveryElementOnceInOrderOfEachProducerWhenOfferedConcurrently() throws Exception {
+        // given
+        var producers = 4;
+        var perProducer = 50_000;
+        var queue = new DataUrlWriteQueue<long[]>(1024);
+
+        // when
+        var offering = new ArrayList<CompletableFuture<Void>>();
+        for (int p = 0; p < producers; p++) {
+            var producer = p;
+            offering.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        var drained = new ArrayList<long[]>();
+        var batch = new ArrayList<long[]>();
+        while (drained.size() < producers * perProducer) {
+            queue.drain(batch, 256);
+            drained.addAll(batch);
+            batch.clear();
+        }
+        CompletableFuture.allOf(offering.toArray(new CompletableFuture[0])).get(1, TimeUnit.MINUTES);
+
+        // then
+        var next = new long[producers];
+        for (var element : drained) {
+            assertThat(element[1]).isEqualTo(next[(int) element[0]]++);
+        }
+        assertThat(next).containsOnly(perProducer);
+        assertThat(queue.drain(new ArrayList<long[]>(), 1)).isZero();
+    }
+}
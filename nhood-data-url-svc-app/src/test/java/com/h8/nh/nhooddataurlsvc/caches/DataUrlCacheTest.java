@@ -0,0 +1,207 @@
+package com.h8.nh.nhooddataurlsvc.caches;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCacheProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlCacheTest {
+
+    private SimpleMeterRegistry registry;
+
+    private DataUrlCacheProperties properties;
+
+    private DataUrlVersionIndex versionIndex;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new DataUrlCacheProperties();
+        versionIndex = new DataUrlVersionIndex();
+        versionIndex.put(version(1L, 0));
+        versionIndex.put(version(2L, 0));
+    }
+
+    @Test
+    void shouldLoadEntryOnlyOnceOnGet() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var entry = responseDTO(1L);
+        var loads = new AtomicInteger();
+
+        // when
+        cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(entry); });
+        var result = cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(entry); });
+
+        // then
+        assertThat(result).contains(entry);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheMissingEntryOnGet() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var entry = responseDTO(1L);
+
+        // when
+        cache.get(1L, k -> Optional.empty());
+        var result = cache.get(1L, k -> Optional.of(entry));
+
+        // then
+        assertThat(result).contains(entry);
+    }
+
+    @Test
+    void shouldLoadEntryAgainAfterInvalidate() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var loads = new AtomicInteger();
+
+        // when
+        cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(new DataUrlResponseDTO()); });
+        cache.invalidate(1L);
+        cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(new DataUrlResponseDTO()); });
+
+        // then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldLoadOnlyMissingEntriesOnGetAll() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var first = responseDTO(1L);
+        var second = responseDTO(2L);
+        cache.get(1L, k -> Optional.of(first));
+
+        // when
+        var result = cache.getAll(List.of(1L, 2L), ids -> {
+            assertThat(ids).containsExactly(2L);
+            return Map.of(2L, second);
+        });
+
+        // then
+        assertThat(result).containsOnly(Map.entry(1L, first), Map.entry(2L, second));
+    }
+
+    @Test
+    void shouldNotServeEntryLoadedBeforeConcurrentUpdateOnGet() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var stale = responseDTO(1L);
+        var fresh = responseDTO(1L);
+        fresh.setUrl("URL2");
+
+        // when
+        cache.get(1L, k -> {
+            versionIndex.put(version(1L, 1));
+            cache.invalidate(1L);
+            return Optional.of(stale);
+        });
+        var result = cache.get(1L, k -> Optional.of(fresh));
+
+        // then
+        assertThat(result).contains(fresh);
+    }
+
+    @Test
+    void shouldNotServeEntryLoadedBeforeConcurrentUpdateOnGetAll() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var stale = responseDTO(1L);
+        var fresh = responseDTO(1L);
+        fresh.setUrl("URL2");
+
+        // when
+        cache.getAll(List.of(1L), ids -> {
+            versionIndex.put(version(1L, 1));
+            cache.invalidate(1L);
+            return Map.of(1L, stale);
+        });
+        var result = cache.getAll(List.of(1L), ids -> Map.of(1L, fresh));
+
+        // then
+        assertThat(result).containsOnly(Map.entry(1L, fresh));
+    }
+
+    @Test
+    void shouldNotServeCachedEntryOnceNewerVersionIsPublishedOnGetIfPresent() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        cache.get(1L, k -> Optional.of(responseDTO(1L)));
+
+        // when
+        versionIndex.put(version(1L, 1));
+        var result = cache.getIfPresent(1L);
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldNotCacheEntryUnknownToVersionIndexOnGet() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var loads = new AtomicInteger();
+
+        // when
+        cache.get(3L, k -> { loads.incrementAndGet(); return Optional.of(responseDTO(3L)); });
+        cache.get(3L, k -> { loads.incrementAndGet(); return Optional.of(responseDTO(3L)); });
+
+        // then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAlwaysCallLoaderWhenDisabled() {
+        // given
+        properties.setEnabled(false);
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+        var loads = new AtomicInteger();
+
+        // when
+        cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(new DataUrlResponseDTO()); });
+        cache.get(1L, k -> { loads.incrementAndGet(); return Optional.of(new DataUrlResponseDTO()); });
+
+        // then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExposeHitAndMissMetrics() {
+        // given
+        var cache = new DataUrlCache(properties, versionIndex, registry);
+
+        // when
+        cache.get(1L, k -> Optional.of(new DataUrlResponseDTO()));
+        cache.get(1L, k -> Optional.of(new DataUrlResponseDTO()));
+
+        // then
+        assertThat(registry.get("cache.gets").tag("cache", DataUrlCache.NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.gets").tag("cache", DataUrlCache.NAME).tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    private static DataUrlVersion version(Long id, long version) {
+        return new DataUrlVersion(id, version, Instant.EPOCH);
+    }
+
+    private static DataUrlResponseDTO responseDTO(Long id) {
+        var dto = new DataUrlResponseDTO();
+        dto.setId(id);
+        return dto;
+    }
+}
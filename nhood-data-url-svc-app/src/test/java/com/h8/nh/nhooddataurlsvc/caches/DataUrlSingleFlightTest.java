@@ -0,0 +1,183 @@
+package com.h8.nh.nhooddataurlsvc.caches;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class DataUrlSingleFlightTest {
+
+    private SimpleMeterRegistry registry;
+
+    private CountDownLatch release;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void shouldRunLoaderOnceForConcurrentCallsOfSameKeyOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", true, Duration.ofSeconds(10), registry);
+
+        // when
+        var calls = concurrently(flight, 1L, 6, blocking(l -> "value" + l));
+        release.countDown();
+
+        // then
+        for (var call : calls) {
+            assertThat(call.get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(flight.deduplication()).isEqualTo(5 / 6.0);
+    }
+
+    @Test
+    void shouldRunLoaderOncePerKeyOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", true, Duration.ofSeconds(10), registry);
+
+        // when
+        var first = concurrently(flight, 1L, 2, blocking(l -> "value" + l));
+        var second = concurrently(flight, 2L, 2, blocking(l -> "value" + l));
+        release.countDown();
+
+        // then
+        assertThat(first.get(1).get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+        assertThat(second.get(1).get(10, TimeUnit.SECONDS)).isEqualTo("value2");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldShareExceptionOfRunningLoadOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", true, Duration.ofSeconds(10), registry);
+
+        // when
+        var calls = concurrently(flight, 1L, 3, blocking(l -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+        release.countDown();
+
+        // then
+        for (var call : calls) {
+            assertThatThrownBy(() -> call.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(flight.load(1L, l -> "value" + l)).isEqualTo("value1");
+    }
+
+    @Test
+    void shouldStopWaitingForRunningLoadAfterWaitTimeoutOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", true, Duration.ofMillis(50), registry);
+        var leader = concurrently(flight, 1L, 1, blocking(l -> "value" + l));
+        while (loads.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        // when
+        var thrown = catchThrowable(() -> flight.load(1L, l -> "own"));
+        release.countDown();
+
+        // then
+        assertThat(thrown).isInstanceOf(TransientDataAccessResourceException.class);
+        assertThat(registry.get(DataUrlSingleFlight.TIMEOUTS).counter().count()).isEqualTo(1);
+        assertThat(leader.get(0).get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStartNewLoadAfterForgetOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", true, Duration.ofSeconds(10), registry);
+        var before = concurrently(flight, 1L, 1, blocking(l -> "old"));
+
+        // when
+        flight.forget(1L);
+        var after = flight.load(1L, l -> "new");
+        release.countDown();
+
+        // then
+        assertThat(after).isEqualTo("new");
+        assertThat(before.get(0).get(10, TimeUnit.SECONDS)).isEqualTo("old");
+    }
+
+    @Test
+    void shouldRunLoaderForEachCallWhenDisabledOnLoad() throws Exception {
+        // given
+        var flight = new DataUrlSingleFlight<Long, String>("test", false, Duration.ofSeconds(10), registry);
+
+        // when
+        var calls = concurrently(flight, 1L, 3, blocking(l -> "value" + l));
+        release.countDown();
+
+        // then
+        for (var call : calls) {
+            assertThat(call.get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+        }
+        assertThat(loads.get()).isEqualTo(3);
+        assertThat(flight.deduplication()).isZero();
+    }
+
+    private Function<Long, String> blocking(Function<Long, String> loader) {
+        return l -> {
+            loads.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(l);
+        };
+    }
+
+    private List<CompletableFuture<String>> concurrently(
+            DataUrlSingleFlight<Long, String> flight,
+            Long key,
+            int callers,
+            Function<Long, String> loader) throws InterruptedException {
+        var counted = registry.get(DataUrlSingleFlight.CALLS).counter();
+        var expected = counted.count() + callers;
+        var calls = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < callers; i++) {
+            var call = new CompletableFuture<String>();
+            new Thread(() -> {
+                try {
+                    call.complete(flight.load(key, loader));
+                } catch (RuntimeException e) {
+                    call.completeExceptionally(e);
+                }
+            }).start();
+            calls.add(call);
+        }
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (counted.count() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // let the callers that were counted last reach the running load
+        Thread.sleep(200);
+        return calls;
+    }
+}
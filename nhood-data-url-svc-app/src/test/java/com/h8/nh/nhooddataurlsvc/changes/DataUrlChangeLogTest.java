@@ -0,0 +1,169 @@
+package com.h8.nh.nhooddataurlsvc.changes;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class DataUrlChangeLogTest {
+
+    private static final long START = 100L;
+
+    private DataUrlChangeLog log;
+
+    @BeforeEach
+    void setUp() {
+        log = new DataUrlChangeLog(3, 2, START);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.destroy();
+    }
+
+    @Test
+    void shouldNumberChangesAfterStartInAppendOrder() {
+        // when
+        log.upserted(entry(1L, 0L));
+        log.upserted(entry(2L, 0L));
+        log.deleted(1L);
+
+        // then
+        assertThat(log.sequence()).isEqualTo(START + 3);
+        assertThat(log.findSince(START, 10).orElseThrow())
+                .extracting(DataUrlChange::getSequence)
+                .containsExactly(START + 2, START + 3);
+    }
+
+    @Test
+    void shouldKeepOnlyLatestChangeOfEachEntry() {
+        // when
+        log.upserted(entry(1L, 0L));
+        log.upserted(entry(1L, 1L));
+
+        // then
+        assertThat(log.findSince(START, 10).orElseThrow())
+                .containsExactly(new DataUrlChange(
+                        START + 2, DataUrlChange.Type.UPSERT, 1L, List.of("KEY1"), "URL1", 1L));
+    }
+
+    @Test
+    void shouldReturnAtMostLimitChangesInSequenceOrder() {
+        // given
+        log.upserted(entry(1L, 0L));
+        log.upserted(entry(2L, 0L));
+        log.upserted(entry(3L, 0L));
+
+        // when
+        var result = log.findSince(START + 1, 1).orElseThrow();
+
+        // then
+        assertThat(result)
+                .extracting(DataUrlChange::getId)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void shouldReturnNothingForSequenceBehindDroppedChanges() {
+        // given
+        for (long id = 1; id <= 4; id++) {
+            log.upserted(entry(id, 0L));
+        }
+
+        // then
+        assertThat(log.findSince(START, 10)).isEmpty();
+        assertThat(log.findSince(START + 1, 10).orElseThrow())
+                .extracting(DataUrlChange::getId)
+                .containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldReturnNothingForSequenceBeyondLatestChange() {
+        // given
+        log.upserted(entry(1L, 0L));
+
+        // then
+        assertThat(log.findSince(START + 1, 10).orElseThrow()).isEmpty();
+        assertThat(log.findSince(START + 2, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldDeliverRetainedAndAppendedChangesToSubscriber() throws InterruptedException {
+        // given
+        var received = new CopyOnWriteArrayList<DataUrlChange>();
+        var latch = new CountDownLatch(2);
+        log.upserted(entry(1L, 0L));
+
+        // when
+        log.subscribe(START, l -> l.forEach(change -> {
+            received.add(change);
+            latch.countDown();
+        }), () -> {
+        });
+        log.upserted(entry(2L, 0L));
+
+        // then
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received)
+                .extracting(DataUrlChange::getSequence)
+                .containsExactly(START + 1, START + 2);
+    }
+
+    @Test
+    void shouldNotifySubscriberBehindDroppedChanges() throws InterruptedException {
+        // given
+        var compacted = new CountDownLatch(1);
+        for (long id = 1; id <= 4; id++) {
+            log.upserted(entry(id, 0L));
+        }
+
+        // when
+        log.subscribe(START, l -> {
+        }, compacted::countDown);
+
+        // then
+        assertThat(compacted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldRefuseSubscriptionBeyondMaximumSubscribersOnSubscribe() {
+        // given
+        var first = log.subscribe(START, l -> {
+        }, () -> {
+        });
+        log.subscribe(START, l -> {
+        }, () -> {
+        });
+
+        // when
+        var refused = catchThrowable(() -> log.subscribe(START, l -> {
+        }, () -> {
+        }));
+        first.cancel();
+        var accepted = catchThrowable(() -> log.subscribe(START, l -> {
+        }, () -> {
+        }));
+
+        // then
+        assertThat(refused).isInstanceOf(DataUrlSubscriptionRejectedException.class);
+        assertThat(accepted).isNull();
+    }
+
+    private static DataUrl entry(Long id, Long version) {
+        return DataUrl.builder()
+                .id(id)
+                .key(List.of("KEY" + id))
+                .url("URL" + id)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.h8.nh.nhooddataurlsvc.dictionaries;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlDictionaryTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table data_url_segment (id int primary key, segment varchar(255) not null)");
+        jdbcTemplate.execute("create table data_url_prefix (id int primary key, prefix varchar(255) not null)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void shouldDecodeEncodedKeyWithOneBytePerSegment() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+        var key = List.of("music", "artist-1", "music");
+
+        // when
+        var codes = dictionary.encodeKey(key);
+        var result = dictionary.decodeKey(codes);
+
+        // then
+        assertThat(codes).hasSize(3);
+        assertThat(result).isEqualTo(key);
+        assertThat(dictionary.segmentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldShareSegmentInstancesBetweenDecodedKeys() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+        var codes = dictionary.encodeKey(List.of(new String("music")));
+
+        // when
+        var first = dictionary.decodeKey(codes);
+        var second = dictionary.decodeKey(codes);
+
+        // then
+        assertThat(first.get(0)).isSameAs(second.get(0));
+    }
+
+    @Test
+    void shouldDecodeEncodedUrlsSharingPrefix() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+        var urls = List.of("http://localhost/data/1", "http://localhost/data/ż", "http://localhost/data/", "URL1");
+
+        // when
+        var result = urls.stream()
+                .map(dictionary::encodeUrl)
+                .map(dictionary::decodeUrl);
+
+        // then
+        assertThat(result).containsExactlyElementsOf(urls);
+        assertThat(dictionary.prefixCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDecodeCodesOfAnotherDictionaryOnSameDatabase() {
+        // given
+        var codes = new DataUrlDictionary(jdbcTemplate).encodeKey(List.of("KEY1", "KEY2"));
+
+        // when
+        var result = new DataUrlDictionary(jdbcTemplate).decodeKey(codes);
+
+        // then
+        assertThat(result).containsExactly("KEY1", "KEY2");
+    }
+
+    @Test
+    void shouldReadOnlyUnknownCodeWhenCodeIsCommittedByAnotherDictionary() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+        dictionary.encodeKey(List.of("KEY1"));
+        var codes = new DataUrlDictionary(jdbcTemplate).encodeKey(List.of("KEY2", "KEY3"));
+
+        // when
+        var result = dictionary.decodeKey(new byte[]{codes[0]});
+
+        // then
+        assertThat(result).containsExactly("KEY2");
+        assertThat(dictionary.segmentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRegisterSegmentsOfAllEntriesWithSingleInsertPerDictionary() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+        var entries = List.of(
+                DataUrl.builder().key(List.of("KEY1", "KEY2")).url("http://a/1").build(),
+                DataUrl.builder().key(List.of("KEY2", "KEY3")).url("http://b/1").build());
+
+        // when
+        dictionary.register(entries);
+
+        // then
+        assertThat(dictionary.segmentCount()).isEqualTo(3);
+        assertThat(dictionary.prefixCount()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from data_url_segment", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotPublishSegmentsOfRolledBackTransaction() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+
+        // when
+        transactionTemplate.execute(status -> {
+            var codes = dictionary.encodeKey(List.of("KEY1"));
+            assertThat(dictionary.decodeKey(codes)).containsExactly("KEY1");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        // then
+        assertThat(dictionary.segmentCount()).isZero();
+        assertThat(dictionary.decodeKey(dictionary.encodeKey(List.of("KEY1")))).containsExactly("KEY1");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from data_url_segment", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPublishSegmentsOfCommittedTransaction() {
+        // given
+        var dictionary = new DataUrlDictionary(jdbcTemplate);
+
+        // when
+        var codes = transactionTemplate.execute(status -> dictionary.encodeKey(List.of("KEY1")));
+
+        // then
+        assertThat(dictionary.segmentCount()).isEqualTo(1);
+        assertThat(dictionary.decodeKey(codes)).containsExactly("KEY1");
+    }
+}
@@ -1,9 +1,21 @@
 package com.h8.nh.nhooddataurlsvc.e2e;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlModifyRequestDTO;
 import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchReadResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangeDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangesResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlImportResponseDTO;
 import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
 import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,13 +27,25 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
 @ExtendWith(SpringExtension.class)
@@ -31,9 +55,15 @@ class DataUrlServiceApplicationTest {
     @Autowired
     private DataUrlRepository repository;
 
+    @Autowired
+    private DataUrlService service;
+
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private MeterRegistry registry;
+
     private ModelMapper mapper = new ModelMapper();
 
     private DataUrl[] testData;
@@ -47,6 +77,7 @@ class DataUrlServiceApplicationTest {
         testDataDto = StreamSupport.stream(data.spliterator(), false)
                 .map(l -> mapper.map(l, DataUrlResponseDTO.class))
                 .toArray(DataUrlResponseDTO[]::new);
+        service.rebuildIndexes();
     }
 
     @Test
@@ -62,6 +93,145 @@ class DataUrlServiceApplicationTest {
                 .containsExactlyInAnyOrder(testDataDto[0], testDataDto[1]);
     }
 
+    @Test
+    void shouldListFirstPageOfDataUrlsWhenGetIsCalledWithLimitParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls?limit=1", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsExactly(testDataDto[0]);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.LINK))
+                .isEqualTo("</urls?after=" + testData[0].getId() + "&limit=1>; rel=\"next\"");
+    }
+
+    @Test
+    void shouldListNextPageOfDataUrlsWhenGetIsCalledWithAfterParameter() {
+        // given
+        var after = testData[0].getId();
+
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls?after=" + after + "&limit=10", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsExactly(testDataDto[1]);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.LINK))
+                .isNull();
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenGetIsCalledWithInvalidLimitParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls?limit=0", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldReturnDataUrlsWithExactKeyWhenLookupIsCalled() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/lookup?key=KEY1.1&key=KEY1.2", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsExactly(testDataDto[0]);
+    }
+
+    @Test
+    void shouldReturnNoDataUrlsWhenLookupIsCalledWithKeyPrefixOnly() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/lookup?key=KEY1.1", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnDataUrlsUnderKeyPrefixWhenLookupIsCalledWithPrefixParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/lookup?key=KEY2.1&prefix=true", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsExactly(testDataDto[1]);
+    }
+
+    @Test
+    void shouldListKeyTreeNodeWhenTreeIsCalledWithKeyPrefix() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/tree/KEY1.1", DataUrlTreeResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getKey()).containsExactly("KEY1.1");
+        assertThat(response.getBody().getEntries()).isEmpty();
+        assertThat(response.getBody().getChildren()).containsExactly(Map.entry("KEY1.2", 1));
+    }
+
+    @Test
+    void shouldResolveLongestMatchingKeyWhenTreeIsCalledWithLongestParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/tree/KEY1.1/KEY1.2/KEY1.3?longest=true", DataUrlTreeResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getKey()).containsExactly("KEY1.1", "KEY1.2");
+        assertThat(response.getBody().getEntries()).containsExactly(testDataDto[0]);
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenTreeIsCalledWithUnknownKey() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/tree/KEY1.1/UNKNOWN", DataUrlTreeResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldReturnCreatedDataUrlWhenLookupIsCalledAfterPost() {
+        // given
+        var entry = initializeDataUrl("URL3", "KEY3.1", "KEY3.2");
+        var dto = mapper.map(entry, DataUrlRequestDTO.class);
+        restTemplate.postForEntity("/urls", dto, Void.class);
+
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/lookup?key=KEY3.1&key=KEY3.2", DataUrlResponseDTO[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).hasSize(1);
+        assertThat(response.getBody()[0].getUrl())
+                .isEqualTo(entry.getUrl());
+    }
+
     @Test
     void shouldReturnSingleDataUrlWhenGetIsCalledWithIdParameter() {
         // given
@@ -173,6 +343,38 @@ class DataUrlServiceApplicationTest {
         assertThat(created.getBody()).isNull();
     }
 
+    @Test
+    void shouldReturnBadRequestWhenPostIsCalledWithBlankKeySegment() {
+        // given
+        var dto = new DataUrlRequestDTO();
+        dto.setKey(Arrays.asList("KEY1", null));
+        dto.setUrl("URL3");
+
+        // when
+        var created = restTemplate.postForEntity(
+                "/urls", dto, Void.class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPostIsCalledWithTooLongKeySegment() {
+        // given
+        var dto = new DataUrlRequestDTO();
+        dto.setKey(List.of("KEY1", String.join("", Collections.nCopies(256, "K"))));
+        dto.setUrl("URL3");
+
+        // when
+        var created = restTemplate.postForEntity(
+                "/urls", dto, Void.class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void shouldModifyObjectWhenPutIsCalled() {
         // given
@@ -264,6 +466,590 @@ class DataUrlServiceApplicationTest {
         assertThat(deleted.getBody()).isNull();
     }
 
+    @Test
+    void shouldCreateAllDataUrlsWhenBatchPostIsCalled() {
+        // given
+        var dtos = List.of(
+                mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class),
+                mapper.map(initializeDataUrl("URL4", "KEY4.1"), DataUrlRequestDTO.class));
+
+        // when
+        var created = restTemplate.postForEntity(
+                "/urls/batch", dtos, DataUrlBatchResponseDTO.class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(created.getBody().getIds()).hasSize(2);
+
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/" + created.getBody().getIds().get(1), DataUrlResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getUrl())
+                .isEqualTo("URL4");
+    }
+
+    @Test
+    void shouldReturnBadRequestAndCreateNothingWhenBatchPostIsCalledWithInvalidEntry() {
+        // given
+        var dtos = List.of(
+                mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class),
+                mapper.map(initializeDataUrl(null, "KEY4.1"), DataUrlRequestDTO.class));
+
+        // when
+        var created = restTemplate.postForEntity(
+                "/urls/batch", dtos, DataUrlBatchResponseDTO.class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(created.getBody().getErrors())
+                .containsExactly("[1].url: must not be null");
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldModifyFoundDataUrlsAndReportMissingOnesWhenBatchPutIsCalled() {
+        // given
+        var dto = new DataUrlModifyRequestDTO();
+        dto.setId(testData[0].getId());
+        dto.setKey(List.of("KEY3.1"));
+        dto.setUrl("URL3");
+
+        var missing = new DataUrlModifyRequestDTO();
+        missing.setId(Long.MAX_VALUE);
+        missing.setKey(List.of("KEY4.1"));
+        missing.setUrl("URL4");
+
+        // when
+        var req = new HttpEntity<>(List.of(dto, missing), new HttpHeaders());
+        var modified = restTemplate.exchange(
+                "/urls/batch", HttpMethod.PUT, req, DataUrlBatchResponseDTO.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(modified.getBody().getIds())
+                .containsExactly(testData[0].getId());
+        assertThat(modified.getBody().getNotFound())
+                .containsExactly(Long.MAX_VALUE);
+
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/" + testData[0].getId(), DataUrlResponseDTO.class);
+
+        // then
+        assertThat(response.getBody().getUrl())
+                .isEqualTo("URL3");
+    }
+
+    @Test
+    void shouldDeleteFoundDataUrlsAndReportMissingOnesWhenBatchDeleteIsCalled() {
+        // given
+        var ids = List.of(testData[0].getId(), Long.MAX_VALUE);
+
+        // when
+        var req = new HttpEntity<>(ids, new HttpHeaders());
+        var deleted = restTemplate.exchange(
+                "/urls/batch", HttpMethod.DELETE, req, DataUrlBatchResponseDTO.class);
+
+        // then
+        assertThat(deleted.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(deleted.getBody().getIds())
+                .containsExactly(testData[0].getId());
+        assertThat(deleted.getBody().getNotFound())
+                .containsExactly(Long.MAX_VALUE);
+        assertThat(repository.existsById(testData[0].getId())).isFalse();
+    }
+
+    @Test
+    void shouldReturnDataUrlsInRequestOrderAndReportMissingOnesWhenGetIsCalledWithIdsParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls?ids=" + testData[1].getId() + "," + Long.MAX_VALUE + "," + testData[0].getId(),
+                DataUrlBatchReadResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getUrls())
+                .containsExactly(testDataDto[1], testDataDto[0]);
+        assertThat(response.getBody().getNotFound())
+                .containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldReturnDataUrlsInRequestOrderAndReportMissingOnesWhenBatchReadIsCalled() {
+        // given
+        var ids = List.of(Long.MAX_VALUE, testData[1].getId(), testData[0].getId());
+
+        // when
+        var response = restTemplate.postForEntity(
+                "/urls/batch/read", ids, DataUrlBatchReadResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getUrls())
+                .containsExactly(testDataDto[1], testDataDto[0]);
+        assertThat(response.getBody().getNotFound())
+                .containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBatchReadIsCalledWithNoIds() {
+        // when
+        var response = restTemplate.postForEntity(
+                "/urls/batch/read", List.of(), DataUrlBatchReadResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().getErrors())
+                .isNotEmpty();
+    }
+
+    @Test
+    void shouldCreateValidLinesAndReportInvalidOnesWhenImportIsCalled() {
+        // given
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf(DataUrlWireFormats.APPLICATION_NDJSON_VALUE));
+        var body = "{\"key\":[\"KEY3.1\"],\"url\":\"URL3\"}\n"
+                + "\n"
+                + "{\"key\":[\"KEY4.1\"]}\n"
+                + "{\"key\":\n"
+                + "{\"key\":[\"KEY5.1\"],\"url\":\"URL5\"}";
+
+        // when
+        var imported = restTemplate.postForEntity(
+                "/urls/import", new HttpEntity<>(body, headers), DataUrlImportResponseDTO.class);
+
+        // then
+        assertThat(imported.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(imported.getBody().getImported()).isEqualTo(2);
+        assertThat(imported.getBody().getFailed()).isEqualTo(2);
+        assertThat(imported.getBody().getErrors())
+                .hasSize(2)
+                .first().isEqualTo("line 3: url: must not be null");
+        assertThat(imported.getBody().getErrors().get(1)).startsWith("line 4: ");
+        assertThat(service.findByKey(List.of("KEY5.1")))
+                .extracting(DataUrlResponseDTO::getUrl)
+                .containsExactly("URL5");
+    }
+
+    @Test
+    void shouldListAllDataUrlsOnePerLineWhenExportIsCalled() throws IOException {
+        // when
+        var response = restTemplate.getForEntity("/urls/export", String.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType())
+                .isEqualTo(MediaType.valueOf(DataUrlWireFormats.APPLICATION_NDJSON_VALUE));
+        var lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(2);
+        var objectMapper = new ObjectMapper();
+        assertThat(List.of(
+                objectMapper.readValue(lines[0], DataUrlResponseDTO.class),
+                objectMapper.readValue(lines[1], DataUrlResponseDTO.class)))
+                .containsExactly(testDataDto[0], testDataDto[1]);
+    }
+
+    @Test
+    void shouldReturnVersionValidatorsWhenGetIsCalledWithIdParameter() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/" + testData[0].getId(), DataUrlResponseDTO.class);
+
+        // then
+        assertThat(response.getHeaders().getETag())
+                .isEqualTo("\"0-json\"");
+        assertThat(response.getHeaders().getLastModified())
+                .isPositive();
+    }
+
+    @Test
+    void shouldReturnRepresentationSpecificVersionValidatorsWhenGetIsCalledWithIdParameter() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var smile = new HttpHeaders();
+        smile.setAccept(List.of(DataUrlWireFormats.APPLICATION_SMILE));
+        var gzip = new HttpHeaders();
+        gzip.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        var json = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+
+        // when
+        var smileResponse = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(smile), byte[].class);
+        var gzipResponse = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(gzip), byte[].class);
+        var stale = new HttpHeaders();
+        stale.setIfNoneMatch(json);
+        stale.setAccept(List.of(DataUrlWireFormats.APPLICATION_SMILE));
+        var notModified = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(stale), byte[].class);
+
+        // then
+        assertThat(smileResponse.getHeaders().getETag())
+                .isEqualTo("\"0-smile\"");
+        assertThat(gzipResponse.getHeaders().getETag())
+                .isEqualTo("\"0-json-gzip\"");
+        assertThat(gzipResponse.getHeaders().getVary())
+                .containsExactly(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        assertThat(notModified.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingDataUrlWhenGetIsCalledWithMatchingIfNoneMatch() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var loads = registry.get("data_url.service").tag("method", "findById").timer().count();
+
+        // when
+        var response = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(etag)), DataUrlResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(registry.get("data_url.service").tag("method", "findById").timer().count())
+                .isEqualTo(loads);
+    }
+
+    @Test
+    void shouldReturnNewVersionWhenGetIsCalledWithStaleIfNoneMatchAfterPut() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+        restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(dto), Void.class);
+
+        // when
+        var response = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(etag)), DataUrlResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag())
+                .isEqualTo("\"1-json\"");
+        assertThat(response.getBody().getUrl())
+                .isEqualTo("URL3");
+    }
+
+    @Test
+    void shouldModifyObjectWhenPutIsCalledWithCurrentIfMatch() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+
+        // when
+        var modified = restTemplate.exchange(
+                url, HttpMethod.PUT, new HttpEntity<>(dto, ifMatch(etag)), Void.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(restTemplate.getForEntity(url, DataUrlResponseDTO.class).getBody().getUrl())
+                .isEqualTo("URL3");
+    }
+
+    @Test
+    void shouldReturnPreconditionFailedWhenPutIsCalledWithStaleIfMatch() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var first = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+        restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(first, ifMatch(etag)), Void.class);
+        var second = mapper.map(initializeDataUrl("URL4", "KEY4.1"), DataUrlRequestDTO.class);
+
+        // when
+        var modified = restTemplate.exchange(
+                url, HttpMethod.PUT, new HttpEntity<>(second, ifMatch(etag)), Void.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(restTemplate.getForEntity(url, DataUrlResponseDTO.class).getBody().getUrl())
+                .isEqualTo("URL3");
+        assertThat(registry.get("data_url.write.conflicts").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void shouldModifyObjectWhenPutIsCalledWithIfMatchListContainingCurrentTag() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+
+        // when
+        var modified = restTemplate.exchange(
+                url, HttpMethod.PUT, new HttpEntity<>(dto, ifMatch("\"99\", " + etag)), Void.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    void shouldReturnPreconditionFailedWhenPutIsCalledWithWeakIfMatch() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = restTemplate.getForEntity(url, DataUrlResponseDTO.class).getHeaders().getETag();
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+
+        // when
+        var modified = restTemplate.exchange(
+                url, HttpMethod.PUT, new HttpEntity<>(dto, ifMatch("W/" + etag)), Void.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void shouldReturnPreconditionFailedWhenPutIsCalledWithAnyIfMatchOnNonExistingId() {
+        // given
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+
+        // when
+        var modified = restTemplate.exchange(
+                "/urls/" + Long.MAX_VALUE, HttpMethod.PUT, new HttpEntity<>(dto, ifMatch("*")), Void.class);
+
+        // then
+        assertThat(modified.getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void shouldReturnNotModifiedUntilCollectionChangesWhenGetIsCalledWithIfNoneMatch() {
+        // given
+        var etag = restTemplate.getForEntity("/urls", String.class).getHeaders().getETag();
+
+        // when
+        var unchanged = restTemplate.exchange(
+                "/urls", HttpMethod.GET, new HttpEntity<>(ifNoneMatch(etag)), String.class);
+        restTemplate.postForEntity("/urls",
+                mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class), Void.class);
+        var changed = restTemplate.exchange(
+                "/urls", HttpMethod.GET, new HttpEntity<>(ifNoneMatch(etag)), String.class);
+
+        // then
+        assertThat(unchanged.getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(changed.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag())
+                .isNotEqualTo(etag);
+    }
+
+    @Test
+    void shouldReturnChangesMadeAfterSnapshotWhenChangesAreCalledWithSnapshotSequence() {
+        // given
+        var snapshot = restTemplate.getForEntity("/urls", String.class);
+        var since = snapshot.getHeaders().getFirst("X-Change-Sequence");
+        var dto = mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class);
+        restTemplate.exchange("/urls/" + testData[0].getId(), HttpMethod.PUT, new HttpEntity<>(dto), Void.class);
+        restTemplate.delete("/urls/" + testData[1].getId());
+
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/changes?since=" + since, DataUrlChangesResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getChanges())
+                .extracting(DataUrlChangeDTO::getType, DataUrlChangeDTO::getId, DataUrlChangeDTO::getUrl)
+                .containsExactly(
+                        tuple("UPSERT", testData[0].getId(), "URL3"),
+                        tuple("DELETE", testData[1].getId(), null));
+        assertThat(response.getBody().getSequence())
+                .isEqualTo(response.getBody().getChanges().get(1).getSequence());
+    }
+
+    @Test
+    void shouldReturnGoneWhenChangesAreCalledWithSequenceBehindRetainedChanges() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/changes?since=0", DataUrlChangesResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void shouldReturnGoneWhenChangesAreCalledWithSequenceBeyondLatestChange() {
+        // when
+        var response = restTemplate.getForEntity(
+                "/urls/changes?since=" + (service.changeSequence() + 1), DataUrlChangesResponseDTO.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void shouldStreamChangesAsServerSentEventsWhenChangesAreCalledWithEventStreamAccept() throws IOException {
+        // given
+        var since = service.changeSequence();
+        restTemplate.delete("/urls/" + testData[0].getId());
+
+        // when
+        var connection = (HttpURLConnection) new URL(
+                restTemplate.getRootUri() + "/urls/changes?since=" + since).openConnection();
+        connection.setRequestProperty(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        var event = new StringBuilder();
+        try (var reader = new BufferedReader(new InputStreamReader(
+                connection.getInputStream(), StandardCharsets.UTF_8))) {
+            for (var line = reader.readLine(); !line.isEmpty(); line = reader.readLine()) {
+                event.append(line).append('\n');
+            }
+        } finally {
+            connection.disconnect();
+        }
+
+        // then
+        assertThat(event.toString())
+                .startsWith("id:" + (since + 1) + "\n")
+                .contains("\"type\":\"DELETE\"")
+                .contains("\"id\":" + testData[0].getId());
+    }
+
+    @Test
+    void shouldListAllDataUrlsAsSmileWhenGetIsCalledWithSmileAccept() throws IOException {
+        // given
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(DataUrlWireFormats.APPLICATION_SMILE));
+
+        // when
+        var response = restTemplate.exchange(
+                "/urls", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType())
+                .isEqualTo(DataUrlWireFormats.APPLICATION_SMILE);
+        assertThat(response.getHeaders().getVary())
+                .contains(HttpHeaders.ACCEPT);
+        assertThat(new ObjectMapper(new SmileFactory()).readValue(response.getBody(), DataUrlResponseDTO[].class))
+                .containsExactlyInAnyOrder(testDataDto[0], testDataDto[1]);
+    }
+
+    @Test
+    void shouldCreateAndReturnDataUrlAsSmileWhenPostAndGetAreCalledWithSmile() throws IOException {
+        // given
+        var smile = new ObjectMapper(new SmileFactory());
+        var headers = new HttpHeaders();
+        headers.setContentType(DataUrlWireFormats.APPLICATION_SMILE);
+        headers.setAccept(List.of(DataUrlWireFormats.APPLICATION_SMILE));
+        var body = smile.writeValueAsBytes(mapper.map(initializeDataUrl("URL3", "KEY3.1"), DataUrlRequestDTO.class));
+
+        // when
+        var created = restTemplate.exchange(
+                "/urls", HttpMethod.POST, new HttpEntity<>(body, headers), Void.class);
+        var response = restTemplate.exchange(
+                created.getHeaders().getLocation().toString(), HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(DataUrlWireFormats.APPLICATION_SMILE))
+                .isTrue();
+        assertThat(smile.readValue(response.getBody(), DataUrlResponseDTO.class).getUrl())
+                .isEqualTo("URL3");
+    }
+
+    @Test
+    void shouldCompressLargeListWhenGetIsCalledWithGzipAcceptEncoding() {
+        // given
+        repository.saveAll(IntStream.range(0, 100)
+                .mapToObj(i -> initializeDataUrl("URL" + i, "KEY" + i))
+                .collect(Collectors.toList()));
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        // when
+        var response = restTemplate.exchange(
+                "/urls?limit=100", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+                .isEqualTo("gzip");
+    }
+
+    @Test
+    void shouldCountNotFoundWhenGetIsCalledWithNonExistingIdParameter() {
+        // given
+        var before = registry.get("data_url.not_found").counter().count();
+
+        // when
+        restTemplate.getForEntity("/urls/" + Long.MAX_VALUE, DataUrlResponseDTO.class);
+
+        // then
+        assertThat(registry.get("data_url.not_found").counter().count())
+                .isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldCountValidationFailureWhenPostIsCalledWithMissingUrl() {
+        // given
+        var before = registry.get("data_url.validation.failures").counter().count();
+        var dto = mapper.map(initializeDataUrl(null, "KEY3.1"), DataUrlRequestDTO.class);
+
+        // when
+        var created = restTemplate.postForEntity("/urls", dto, Void.class);
+
+        // then
+        assertThat(created.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(registry.get("data_url.validation.failures").counter().count())
+                .isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldExposeLayerTimersAndPoolGaugesOnPrometheusEndpoint() {
+        // given
+        restTemplate.getForEntity("/urls/" + testData[0].getId(), DataUrlResponseDTO.class);
+
+        // when
+        var response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/urls/{id}\",quantile=\"0.99\",}")
+                .contains("data_url_service_seconds_count{class=\"DataUrlService\",method=\"findById\",}")
+                .contains("data_url_repository_seconds_count{class=\"DataUrlRepository\",method=\"saveAll\",}")
+                .contains("hikaricp_connections_active");
+    }
+
+    private static HttpHeaders ifMatch(String etag) {
+        var headers = new HttpHeaders();
+        headers.setIfMatch(etag);
+        return headers;
+    }
+
+    private static HttpHeaders ifNoneMatch(String etag) {
+        var headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        return headers;
+    }
+
     private Iterable<DataUrl> initializeData() {
         repository.deleteAll();
         return repository.saveAll(
@@ -0,0 +1,407 @@
+package com.h8.nh.nhooddataurlsvc.e2e;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchReadResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlBatchResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangeDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlChangesResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlImportResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlTreeResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1"})
+class ReactiveDataUrlServiceApplicationTest {
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Autowired
+    private DataUrlService service;
+
+    @Autowired
+    private WebTestClient client;
+
+    private DataUrl[] testData;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        var data = repository.saveAll(Arrays.asList(
+                initializeDataUrl("URL1", "KEY1.1", "KEY1.2"),
+                initializeDataUrl("URL2", "KEY2.1", "KEY2.2")));
+        testData = StreamSupport.stream(data.spliterator(), false)
+                .toArray(DataUrl[]::new);
+        service.rebuildIndexes();
+    }
+
+    @Test
+    void shouldListAllDataUrlsWhenGetIsCalled() {
+        // when
+        var response = client.get().uri("/urls")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(DataUrlResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response)
+                .extracting(DataUrlResponseDTO::getId)
+                .containsExactly(testData[0].getId(), testData[1].getId());
+    }
+
+    @Test
+    void shouldListAllDataUrlsAsSmileWhenGetIsCalledWithSmileAccept() throws IOException {
+        // when
+        var response = client.get().uri("/urls")
+                .accept(DataUrlWireFormats.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(DataUrlWireFormats.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(new ObjectMapper(new SmileFactory()).readValue(response, DataUrlResponseDTO[].class))
+                .extracting(DataUrlResponseDTO::getId)
+                .containsExactly(testData[0].getId(), testData[1].getId());
+    }
+
+    @Test
+    void shouldListFirstPageOfDataUrlsWhenGetIsCalledWithLimitParameter() {
+        // then
+        client.get().uri("/urls?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.LINK,
+                        "</urls?after=" + testData[0].getId() + "&limit=1>; rel=\"next\"")
+                .expectBodyList(DataUrlResponseDTO.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void shouldReturnDataUrlsInRequestOrderAndReportMissingOnesWhenGetIsCalledWithIdsParameter() {
+        // when
+        var response = client.get()
+                .uri("/urls?ids=" + testData[1].getId() + "," + Long.MAX_VALUE + "," + testData[0].getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlBatchReadResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.getUrls())
+                .extracting(DataUrlResponseDTO::getId)
+                .containsExactly(testData[1].getId(), testData[0].getId());
+        assertThat(response.getNotFound()).containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldReturnDataUrlsInRequestOrderWhenBatchReadIsCalled() {
+        // when
+        var response = client.post().uri("/urls/batch/read")
+                .body(Mono.just(List.of(testData[1].getId(), testData[0].getId())), List.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlBatchReadResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.getUrls())
+                .extracting(DataUrlResponseDTO::getId)
+                .containsExactly(testData[1].getId(), testData[0].getId());
+        assertThat(response.getNotFound()).isEmpty();
+    }
+
+    @Test
+    void shouldFindDataUrlsWhenLookupIsCalledWithKeyPrefix() {
+        // then
+        client.get().uri("/urls/lookup?key=KEY1.1&prefix=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(DataUrlResponseDTO.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void shouldResolveLongestMatchingKeyWhenTreeIsCalledWithLongestParameter() {
+        client.get().uri("/urls/tree/KEY1.1/KEY1.2/KEY1.3?longest=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlTreeResponseDTO.class)
+                .value(l -> {
+                    assertThat(l.getKey()).containsExactly("KEY1.1", "KEY1.2");
+                    assertThat(l.getEntries()).extracting(DataUrlResponseDTO::getUrl).hasSize(1);
+                });
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenGetIsCalledWithMatchingIfNoneMatch() {
+        // given
+        var url = "/urls/" + testData[0].getId();
+        var etag = client.get().uri(url)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(DataUrlResponseDTO.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // then
+        client.get().uri(url)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/urls")
+                .exchange()
+                .expectHeader().valueMatches(HttpHeaders.ETAG, "\"2-[0-9a-f]{16}-json(-gzip)?\"");
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenGetIsCalledWithNonExistingIdParameter() {
+        // then
+        client.get().uri("/urls/" + Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldCreateDataUrlWhenPostIsCalled() {
+        // given
+        var dto = requestDTO("URL3", "KEY3.1");
+
+        // when
+        var location = client.post().uri("/urls")
+                .syncBody(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .getLocation();
+
+        // then
+        client.get().uri(location.toString())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlResponseDTO.class)
+                .value(l -> assertThat(l.getUrl()).isEqualTo("URL3"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPostIsCalledWithMissingUrl() {
+        // then
+        client.post().uri("/urls")
+                .syncBody(requestDTO(null, "KEY3.1"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldModifyDataUrlWhenPutIsCalled() {
+        // when
+        client.put().uri("/urls/" + testData[0].getId())
+                .syncBody(requestDTO("URL1.1", "KEY1.1"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // then
+        assertThat(service.findById(testData[0].getId()).get().getUrl())
+                .isEqualTo("URL1.1");
+    }
+
+    @Test
+    void shouldReturnPreconditionFailedWhenPutIsCalledWithStaleIfMatch() {
+        // given
+        var id = testData[0].getId();
+        var version = service.findVersion(id).get().getVersion();
+        client.put().uri("/urls/" + id)
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                .syncBody(requestDTO("URL1.1", "KEY1.1"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // when
+        client.put().uri("/urls/" + id)
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                .syncBody(requestDTO("URL1.2", "KEY1.2"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // then
+        assertThat(service.findById(id).get().getUrl())
+                .isEqualTo("URL1.1");
+    }
+
+    @Test
+    void shouldDeleteDataUrlWhenDeleteIsCalled() {
+        // when
+        client.delete().uri("/urls/" + testData[0].getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // then
+        client.delete().uri("/urls/" + testData[0].getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldDeleteExistingAndReportMissingWhenBatchDeleteIsCalled() {
+        // when
+        var response = client.method(HttpMethod.DELETE).uri("/urls/batch")
+                .body(Mono.just(List.of(testData[0].getId(), Long.MAX_VALUE)), List.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlBatchResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.getIds()).containsExactly(testData[0].getId());
+        assertThat(response.getNotFound()).containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldReturnChangesMadeAfterSequenceWhenChangesAreCalled() {
+        // given
+        var since = service.changeSequence();
+        client.delete().uri("/urls/" + testData[0].getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // when
+        var response = client.get().uri("/urls/changes?since=" + since)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlChangesResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.getChanges())
+                .extracting(DataUrlChangeDTO::getType, DataUrlChangeDTO::getId)
+                .containsExactly(tuple("DELETE", testData[0].getId()));
+        assertThat(response.getSequence()).isEqualTo(since + 1);
+    }
+
+    @Test
+    void shouldStreamRetainedAndNewChangesWhenChangesAreCalledWithEventStreamAccept() {
+        // given
+        var since = service.changeSequence();
+        client.delete().uri("/urls/" + testData[0].getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // when
+        var events = client.get().uri("/urls/changes?since=" + since)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(DataUrlChangeDTO.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(events)
+                .assertNext(l -> assertThat(l.getId()).isEqualTo(testData[0].getId()))
+                .then(() -> client.delete().uri("/urls/" + testData[1].getId())
+                        .exchange()
+                        .expectStatus().isNoContent())
+                .assertNext(l -> assertThat(l.getId()).isEqualTo(testData[1].getId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void shouldCreateValidLinesAndReportInvalidOnesWhenImportIsCalled() {
+        // given
+        var body = "{\"key\":[\"KEY3.1\"],\"url\":\"URL3\"}\n"
+                + "{\"key\":[],\"url\":\"URL4\"}\n"
+                + "{\"key\":[\"KEY5.1\"],\"url\":\"URL5\"}\n";
+
+        // when
+        var response = client.post().uri("/urls/import")
+                .contentType(MediaType.valueOf(DataUrlWireFormats.APPLICATION_NDJSON_VALUE))
+                .syncBody(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DataUrlImportResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getErrors()).containsExactly("line 2: key: must not be empty");
+        assertThat(repository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldListAllDataUrlsOnePerLineWhenExportIsCalled() {
+        // when
+        var response = client.get().uri("/urls/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.valueOf(DataUrlWireFormats.APPLICATION_NDJSON_VALUE))
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertThat(response.split("\n"))
+                .hasSize(2)
+                .allMatch(l -> l.startsWith("{") && l.endsWith("}"));
+        assertThat(response)
+                .contains("\"url\":\"URL1\"")
+                .contains("\"url\":\"URL2\"");
+    }
+
+    private static DataUrlRequestDTO requestDTO(String url, String... keys) {
+        var dto = new DataUrlRequestDTO();
+        dto.setUrl(url);
+        dto.setKey(List.of(keys));
+        return dto;
+    }
+
+    private static DataUrl initializeDataUrl(String url, String... keys) {
+        return DataUrl.builder()
+                .key(List.of(keys))
+                .url(url)
+                .build();
+    }
+}
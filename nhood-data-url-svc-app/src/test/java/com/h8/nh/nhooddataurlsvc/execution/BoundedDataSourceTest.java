@@ -0,0 +1,84 @@
+package com.h8.nh.nhooddataurlsvc.execution;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BoundedDataSourceTest {
+
+    private DataSource target;
+
+    private Connection connection;
+
+    private BoundedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = new BoundedDataSource(target, 2, Duration.ofMillis(10));
+    }
+
+    @Test
+    void shouldHoldPermitUntilConnectionIsClosedOnGetConnection() throws SQLException {
+        // when
+        var result = dataSource.getConnection();
+
+        // then
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        result.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+        verify(connection).close();
+    }
+
+    @Test
+    void shouldReleasePermitOnceWhenConnectionIsClosedTwice() throws SQLException {
+        // given
+        var result = dataSource.getConnection();
+
+        // when
+        result.close();
+        result.close();
+
+        // then
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void shouldTimeOutWhenAllPermitsAreTakenOnGetConnection() throws SQLException {
+        // given
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        // then
+        assertThatThrownBy(() -> dataSource.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitWhenTargetFailsOnGetConnection() throws SQLException {
+        // given
+        when(target.getConnection()).thenThrow(new SQLException("down"));
+
+        // then
+        assertThatThrownBy(() -> dataSource.getConnection())
+                .isInstanceOf(SQLException.class)
+                .hasMessage("down");
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+}
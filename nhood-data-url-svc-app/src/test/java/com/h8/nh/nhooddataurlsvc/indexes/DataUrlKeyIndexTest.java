@@ -0,0 +1,192 @@
+package com.h8.nh.nhooddataurlsvc.indexes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlKeyIndexTest {
+
+    private DataUrlKeyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new DataUrlKeyIndex();
+        index.put(1L, List.of("A", "B"));
+        index.put(2L, List.of("A", "B", "C"));
+        index.put(3L, List.of("A", "BC"));
+        index.put(4L, List.of("A", "B"));
+        index.put(5L, List.of("X"));
+    }
+
+    @Test
+    void shouldFindIdsRegisteredUnderExactKeyOnFindByKey() {
+        // when
+        var result = index.findByKey(List.of("A", "B"));
+
+        // then
+        assertThat(result).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void shouldReturnEmptyListForUnknownKeyOnFindByKey() {
+        // when
+        var result = index.findByKey(List.of("A"));
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldFindIdsRegisteredUnderKeyAndItsDescendantsOnFindByKeyPrefix() {
+        // when
+        var result = index.findByKeyPrefix(List.of("A", "B"));
+
+        // then
+        assertThat(result).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void shouldMatchWholeSegmentsOnlyOnFindByKeyPrefix() {
+        // when
+        var result = index.findByKeyPrefix(List.of("A"));
+
+        // then
+        assertThat(result).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldFindAllIdsForEmptyPrefixOnFindByKeyPrefix() {
+        // when
+        var result = index.findByKeyPrefix(List.of());
+
+        // then
+        assertThat(result).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void shouldMoveIdToNewKeyOnPut() {
+        // when
+        index.put(1L, List.of("X"));
+
+        // then
+        assertThat(index.findByKey(List.of("A", "B"))).containsExactly(4L);
+        assertThat(index.findByKey(List.of("X"))).containsExactly(1L, 5L);
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldIndexEveryEntryAndMoveExistingIdsOnPutAll() {
+        // when
+        index.putAll(Map.of(1L, List.of("X"), 6L, List.of("A", "B")));
+
+        // then
+        assertThat(index.findByKey(List.of("A", "B"))).containsExactly(4L, 6L);
+        assertThat(index.findByKey(List.of("X"))).containsExactly(1L, 5L);
+        assertThat(index.size()).isEqualTo(6);
+    }
+
+    @Test
+    void shouldForgetIdOnRemove() {
+        // when
+        index.remove(5L);
+
+        // then
+        assertThat(index.findByKey(List.of("X"))).isEmpty();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldListIdsAndChildSizesOnFindNode() {
+        // when
+        var result = index.findNode(List.of("A"));
+
+        // then
+        assertThat(result).hasValueSatisfying(l -> {
+            assertThat(l.getKey()).containsExactly("A");
+            assertThat(l.getIds()).isEmpty();
+            assertThat(l.getChildren()).containsExactly(Map.entry("B", 3), Map.entry("BC", 1));
+            assertThat(l.getSize()).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void shouldListNextSegmentWhenKeyEndsInsideEdgeOnFindNode() {
+        // given
+        index.put(6L, List.of("Y", "Z", "W"));
+
+        // when
+        var result = index.findNode(List.of("Y"));
+
+        // then
+        assertThat(result).hasValueSatisfying(l -> {
+            assertThat(l.getIds()).isEmpty();
+            assertThat(l.getChildren()).containsExactly(Map.entry("Z", 1));
+            assertThat(l.getSize()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownKeyOnFindNode() {
+        // when
+        var result = index.findNode(List.of("A", "X"));
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldResolveLongestKeyWithIdsOnFindLongestPrefix() {
+        // when
+        var result = index.findLongestPrefix(List.of("A", "B", "C", "D"));
+
+        // then
+        assertThat(result).hasValueSatisfying(l -> {
+            assertThat(l.getKey()).containsExactly("A", "B", "C");
+            assertThat(l.getIds()).containsExactly(2L);
+        });
+    }
+
+    @Test
+    void shouldSkipKeysWithoutIdsOnFindLongestPrefix() {
+        // when
+        var result = index.findLongestPrefix(List.of("A", "BD"));
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldSplitAndMergeEdgesOnPutAndRemove() {
+        // given
+        index.put(6L, List.of("Y", "Z", "W"));
+        index.put(7L, List.of("Y", "Z", "V"));
+
+        // when
+        index.remove(7L);
+
+        // then
+        assertThat(index.findByKey(List.of("Y", "Z", "W"))).containsExactly(6L);
+        assertThat(index.findByKey(List.of("Y", "Z", "V"))).isEmpty();
+        assertThat(index.findNode(List.of("Y", "Z"))).hasValueSatisfying(l ->
+                assertThat(l.getChildren()).containsExactly(Map.entry("W", 1)));
+        assertThat(index.findLongestPrefix(List.of("Y", "Z", "W", "U"))).hasValueSatisfying(l ->
+                assertThat(l.getIds()).containsExactly(6L));
+    }
+
+    @Test
+    void shouldForgetKeyOnceLastIdIsRemoved() {
+        // when
+        index.remove(2L);
+
+        // then
+        assertThat(index.findNode(List.of("A", "B", "C"))).isEmpty();
+        assertThat(index.findNode(List.of("A", "B"))).hasValueSatisfying(l -> {
+            assertThat(l.getIds()).containsExactly(1L, 4L);
+            assertThat(l.getChildren()).isEmpty();
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.h8.nh.nhooddataurlsvc.indexes;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlVersionIndexTest {
+
+    private DataUrlVersionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new DataUrlVersionIndex();
+        index.put(version(1L, 0L));
+        index.put(version(2L, 3L));
+    }
+
+    @Test
+    void shouldKeepNewerVersionWhenOlderArrivesLateOnPut() {
+        // when
+        index.put(version(2L, 4L));
+        index.put(version(2L, 3L));
+
+        // then
+        assertThat(index.find(2L)).contains(version(2L, 4L));
+    }
+
+    @Test
+    void shouldRefuseVersionOfRemovedEntryOnPut() {
+        // given
+        index.remove(2L);
+
+        // when
+        index.put(version(2L, 4L));
+
+        // then
+        assertThat(index.find(2L)).isEmpty();
+        assertThat(index.isDeleted(2L)).isTrue();
+    }
+
+    @Test
+    void shouldChangeCollectionTagWhenEntryIsModifiedOnPut() {
+        // given
+        var before = index.collectionTag();
+
+        // when
+        index.put(version(1L, 1L));
+
+        // then
+        assertThat(index.collectionTag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void shouldDeriveSameCollectionTagFromSameVersionsInAnyOrder() {
+        // given
+        var other = new DataUrlVersionIndex();
+        other.put(version(2L, 3L));
+        other.put(version(1L, 0L));
+
+        // then
+        assertThat(other.collectionTag()).isEqualTo(index.collectionTag());
+    }
+
+    @Test
+    void shouldRestoreCollectionTagWhenAddedEntryIsRemovedOnRemove() {
+        // given
+        var before = index.collectionTag();
+        index.put(version(3L, 0L));
+
+        // when
+        index.remove(3L);
+
+        // then
+        assertThat(index.collectionTag()).isEqualTo(before);
+        assertThat(index.find(3L)).isEmpty();
+    }
+
+    @Test
+    void shouldMoveCollectionLastModifiedForwardOnRemove() {
+        // given
+        var before = index.collectionLastModified();
+
+        // when
+        index.remove(1L);
+
+        // then
+        assertThat(index.collectionLastModified()).isAfterOrEqualTo(before);
+    }
+
+    private static DataUrlVersion version(Long id, long version) {
+        return new DataUrlVersion(id, version, Instant.EPOCH);
+    }
+}
@@ -0,0 +1,101 @@
+package com.h8.nh.nhooddataurlsvc.locks;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlConcurrencyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataUrlStripedLocksTest {
+
+    private DataUrlConcurrencyProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DataUrlConcurrencyProperties();
+    }
+
+    @Test
+    void shouldRunWritesOfSameEntryOneAtATimeOnWrite() throws Exception {
+        // given
+        properties.setStripedLocks(true);
+        var locks = new DataUrlStripedLocks(properties);
+        var release = new CountDownLatch(1);
+        var holding = holding(locks, 1L, release);
+
+        // when
+        var second = CompletableFuture.supplyAsync(() -> locks.write(1L, () -> true));
+
+        // then
+        assertThatThrownBy(() -> second.get(100, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+        release.countDown();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        holding.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldNotHoldStripeAcrossWriteWhenDisabledOnWrite() throws Exception {
+        // given
+        var locks = new DataUrlStripedLocks(properties);
+        var release = new CountDownLatch(1);
+        var holding = holding(locks, 1L, release);
+
+        // when
+        var second = CompletableFuture.supplyAsync(() -> locks.write(1L, () -> true));
+
+        // then
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        holding.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldHoldStripeOnPublishWhenDisabled() throws Exception {
+        // given
+        var locks = new DataUrlStripedLocks(properties);
+        var release = new CountDownLatch(1);
+        var entered = new CountDownLatch(1);
+        var publishing = CompletableFuture.runAsync(() -> locks.publish(1L, () -> {
+            entered.countDown();
+            await(release);
+        }));
+        entered.await(5, TimeUnit.SECONDS);
+
+        // when
+        var second = CompletableFuture.runAsync(() -> locks.publish(1L, () -> { }));
+
+        // then
+        assertThatThrownBy(() -> second.get(100, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+        release.countDown();
+        second.get(5, TimeUnit.SECONDS);
+        publishing.get(5, TimeUnit.SECONDS);
+    }
+
+    private static CompletableFuture<Boolean> holding(
+            DataUrlStripedLocks locks, Long id, CountDownLatch release) throws InterruptedException {
+        var entered = new CountDownLatch(1);
+        var holding = CompletableFuture.supplyAsync(() -> locks.write(id, () -> {
+            entered.countDown();
+            await(release);
+            return true;
+        }));
+        entered.await(5, TimeUnit.SECONDS);
+        return holding;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.h8.nh.nhooddataurlsvc.mappers;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlMapperTest {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    @Test
+    void shouldMapRequestDTOToDataUrlLikeModelMapper() {
+        // given
+        var dto = new DataUrlRequestDTO();
+        dto.setKey(List.of("KEY1.1", "KEY1.2"));
+        dto.setUrl("URL1");
+
+        // when
+        var result = DataUrlMapper.toDataUrl(dto);
+
+        // then
+        assertThat(result).isEqualTo(modelMapper.map(dto, DataUrl.class));
+    }
+
+    @Test
+    void shouldMapRequestDTOWithMissingFieldsToDataUrlLikeModelMapper() {
+        // given
+        var dto = new DataUrlRequestDTO();
+
+        // when
+        var result = DataUrlMapper.toDataUrl(dto);
+
+        // then
+        assertThat(result).isEqualTo(modelMapper.map(dto, DataUrl.class));
+    }
+
+    @Test
+    void shouldMapDataUrlToResponseDTOLikeModelMapper() {
+        // given
+        var entry = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1.1", "KEY1.2"))
+                .url("URL1")
+                .build();
+
+        // when
+        var result = DataUrlMapper.toResponseDTO(entry);
+
+        // then
+        assertThat(result).isEqualTo(modelMapper.map(entry, DataUrlResponseDTO.class));
+    }
+
+    @Test
+    void shouldMapDataUrlWithMissingFieldsToResponseDTOLikeModelMapper() {
+        // given
+        var entry = new DataUrl();
+
+        // when
+        var result = DataUrlMapper.toResponseDTO(entry);
+
+        // then
+        assertThat(result).isEqualTo(modelMapper.map(entry, DataUrlResponseDTO.class));
+    }
+
+    @Test
+    void shouldNotShareKeyListBetweenDataUrlAndResponseDTO() {
+        // given
+        var key = new ArrayList<>(List.of("KEY1.1"));
+        var entry = DataUrl.builder()
+                .id(1L)
+                .key(key)
+                .url("URL1")
+                .build();
+
+        // when
+        var result = DataUrlMapper.toResponseDTO(entry);
+        key.add("KEY1.2");
+
+        // then
+        assertThat(result.getKey()).containsExactly("KEY1.1");
+    }
+}
@@ -0,0 +1,63 @@
+package com.h8.nh.nhooddataurlsvc.mappers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats.APPLICATION_SMILE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+class DataUrlWireFormatsTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    private final ObjectMapper smile = new ObjectMapper(DataUrlWireFormats.smileFactory());
+
+    private final DataUrlWireFormats formats = new DataUrlWireFormats(json, smile);
+
+    @Test
+    void shouldPreferJsonWhenAcceptIsMissingOrWildcard() {
+        // then
+        assertThat(formats.negotiate(List.of())).isEqualTo(APPLICATION_JSON);
+        assertThat(formats.negotiate(MediaType.parseMediaTypes("*/*"))).isEqualTo(APPLICATION_JSON);
+        assertThat(formats.negotiate(MediaType.parseMediaTypes("application/*"))).isEqualTo(APPLICATION_JSON);
+    }
+
+    @Test
+    void shouldPickSmileWhenItIsPreferred() {
+        // then
+        assertThat(formats.negotiate(MediaType.parseMediaTypes("application/x-jackson-smile")))
+                .isEqualTo(APPLICATION_SMILE);
+        assertThat(formats.negotiate(MediaType.parseMediaTypes("application/json;q=0.5, application/x-jackson-smile")))
+                .isEqualTo(APPLICATION_SMILE);
+        assertThat(formats.mapperFor(APPLICATION_SMILE)).isSameAs(smile);
+    }
+
+    @Test
+    void shouldRoundTripListThroughSmileInFewerBytesThanJson() throws Exception {
+        // given
+        var dtos = new ArrayList<DataUrlResponseDTO>();
+        for (long i = 0; i < 100; i++) {
+            var dto = new DataUrlResponseDTO();
+            dto.setId(i);
+            dto.setKey(List.of("music", "artist-" + (i % 10), "track-" + i));
+            dto.setUrl("https://example.com/music/track-" + i);
+            dtos.add(dto);
+        }
+
+        // when
+        var encoded = smile.writeValueAsBytes(dtos);
+        var decoded = smile.readValue(encoded, new TypeReference<List<DataUrlResponseDTO>>() {
+        });
+
+        // then
+        assertThat(decoded).isEqualTo(dtos);
+        assertThat(encoded.length).isLessThan(json.writeValueAsBytes(dtos).length * 3 / 4);
+    }
+}
@@ -0,0 +1,87 @@
+package com.h8.nh.nhooddataurlsvc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TimedBeanPostProcessorTest {
+
+    private MeterRegistry registry;
+
+    private TimedBeanPostProcessor postProcessor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(registry);
+        postProcessor = new TimedBeanPostProcessor(provider, Map.of(Greeter.class, "test.timer"));
+    }
+
+    @Test
+    void shouldRecordCallsPerMethodOnProxiedBean() {
+        // given
+        var bean = (Greeter) postProcessor.postProcessAfterInitialization(new Greeter(), "greeter");
+
+        // when
+        bean.greet("A");
+        bean.greet("B");
+        bean.toString();
+
+        // then
+        assertThat(registry.get("test.timer")
+                .tag("class", "Greeter")
+                .tag("method", "greet")
+                .timer()
+                .count()).isEqualTo(2);
+        assertThat(registry.find("test.timer").tag("method", "toString").timer())
+                .isNull();
+    }
+
+    @Test
+    void shouldAddInterceptorToExistingProxyOnPostProcess() {
+        // given
+        var proxy = new ProxyFactory(new Greeter());
+        proxy.setProxyTargetClass(true);
+        var bean = proxy.getProxy();
+
+        // when
+        var result = postProcessor.postProcessAfterInitialization(bean, "greeter");
+        ((Greeter) result).greet("A");
+
+        // then
+        assertThat(result).isSameAs(bean);
+        assertThat(((Advised) result).getAdvisors()).hasSize(1);
+        assertThat(registry.get("test.timer").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLeaveOtherBeansUntouchedOnPostProcess() {
+        // given
+        var bean = new Object();
+
+        // when
+        var result = postProcessor.postProcessAfterInitialization(bean, "other");
+
+        // then
+        assertThat(result).isSameAs(bean);
+    }
+
+    static class Greeter {
+
+        String greet(String name) {
+            return "Hello " + name;
+        }
+    }
+}
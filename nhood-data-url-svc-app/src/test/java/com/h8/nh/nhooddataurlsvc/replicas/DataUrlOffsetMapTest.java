@@ -0,0 +1,66 @@
+package com.h8.nh.nhooddataurlsvc.replicas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlOffsetMapTest {
+
+    @Test
+    void shouldReturnMissingForUnknownIdOnGet() {
+        // given
+        var map = new DataUrlOffsetMap();
+        map.put(1L, 10L);
+
+        // when
+        var result = map.get(2L);
+
+        // then
+        assertThat(result).isEqualTo(DataUrlOffsetMap.MISSING);
+    }
+
+    @Test
+    void shouldReturnReplacedOffsetOnPut() {
+        // given
+        var map = new DataUrlOffsetMap();
+        map.put(1L, 10L);
+
+        // when
+        var result = map.put(1L, 20L);
+
+        // then
+        assertThat(result).isEqualTo(10L);
+        assertThat(map.get(1L)).isEqualTo(20L);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMatchHashMapUnderRandomPutsAndRemoves() {
+        // given
+        var map = new DataUrlOffsetMap();
+        var expected = new HashMap<Long, Long>();
+        var random = new Random(42);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            var id = (long) random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                var removed = expected.remove(id);
+                assertThat(map.remove(id)).isEqualTo(removed == null ? DataUrlOffsetMap.MISSING : removed);
+            } else {
+                var offset = (long) i;
+                var replaced = expected.put(id, offset);
+                assertThat(map.put(id, offset)).isEqualTo(replaced == null ? DataUrlOffsetMap.MISSING : replaced);
+            }
+        }
+
+        // then
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long id = -2_500; id < 2_500; id++) {
+            assertThat(map.get(id)).isEqualTo(expected.getOrDefault(id, DataUrlOffsetMap.MISSING));
+        }
+    }
+}
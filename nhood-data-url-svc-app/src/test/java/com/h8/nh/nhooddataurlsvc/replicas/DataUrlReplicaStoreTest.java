@@ -0,0 +1,156 @@
+package com.h8.nh.nhooddataurlsvc.replicas;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlReplicaProperties;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlReplicaStoreTest {
+
+    private DataUrlReplicaProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DataUrlReplicaProperties();
+        properties.setEnabled(true);
+        properties.setChunkSize(DataSize.ofBytes(1024));
+    }
+
+    @Test
+    void shouldFindEntryPutIntoStoreOnFind() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        store.put(1L, List.of("KEY1", "KEY2"), "http://localhost/ą/1");
+
+        // when
+        var result = store.find(1L);
+
+        // then
+        assertThat(result).contains(responseDTO(1L, "http://localhost/ą/1", "KEY1", "KEY2"));
+    }
+
+    @Test
+    void shouldReturnLatestEntryAfterPutOfExistingIdOnFind() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        store.put(1L, List.of("KEY1"), "URL1");
+        store.put(1L, List.of("KEY2"), "URL2");
+
+        // when
+        var result = store.find(1L);
+
+        // then
+        assertThat(result).contains(responseDTO(1L, "URL2", "KEY2"));
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotFindRemovedEntryOnFind() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        store.put(1L, List.of("KEY1"), "URL1");
+        store.remove(1L);
+
+        // when
+        var result = store.find(1L);
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void shouldReturnOnlyExistingEntriesOnFindAll() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        store.put(1L, List.of("KEY1"), "URL1");
+        store.put(3L, List.of("KEY3"), "URL3");
+
+        // when
+        var result = store.findAll(List.of(1L, 2L, 3L));
+
+        // then
+        assertThat(result).containsOnlyKeys(1L, 3L);
+        assertThat(result.get(3L)).isEqualTo(responseDTO(3L, "URL3", "KEY3"));
+    }
+
+    @Test
+    void shouldStoreRepeatedSegmentsOnceOnPut() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+
+        // when
+        for (long id = 0; id < 100; id++) {
+            store.put(id, List.of("music", "artist-" + id % 10), "URL" + id);
+        }
+
+        // then
+        assertThat(store.segmentCount()).isEqualTo(11);
+        assertThat(store.find(42L).get().getKey().get(0))
+                .isSameAs(store.find(7L).get().getKey().get(0));
+    }
+
+    @Test
+    void shouldKeepLiveEntriesWhenGarbageIsCompactedOnPut() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        for (long id = 0; id < 100; id++) {
+            store.put(id, List.of("KEY" + id), "URL" + id);
+        }
+
+        // when
+        for (int round = 0; round < 20; round++) {
+            for (long id = 0; id < 100; id += 2) {
+                store.put(id, List.of("KEY" + id), "URL" + id + "-" + round);
+            }
+        }
+
+        // then
+        assertThat(store.size()).isEqualTo(100);
+        assertThat(store.offHeapBytes()).isLessThan(8 * 1024);
+        assertThat(store.find(10L)).contains(responseDTO(10L, "URL10-19", "KEY10"));
+        assertThat(store.find(11L)).contains(responseDTO(11L, "URL11", "KEY11"));
+    }
+
+    @Test
+    void shouldFindNothingAfterClearOnFind() {
+        // given
+        var store = new DataUrlReplicaStore(properties);
+        store.put(1L, List.of("KEY1"), "URL1");
+        store.clear();
+
+        // when
+        var result = store.find(1L);
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(store.offHeapBytes()).isZero();
+    }
+
+    @Test
+    void shouldHoldNothingWhenDisabledOnPut() {
+        // given
+        properties.setEnabled(false);
+        var store = new DataUrlReplicaStore(properties);
+
+        // when
+        store.put(1L, List.of("KEY1"), "URL1");
+
+        // then
+        assertThat(store.find(1L)).isEmpty();
+        assertThat(store.size()).isZero();
+    }
+
+    private static DataUrlResponseDTO responseDTO(Long id, String url, String... key) {
+        var dto = new DataUrlResponseDTO();
+        dto.setId(id);
+        dto.setUrl(url);
+        dto.setKey(List.of(key));
+        return dto;
+    }
+}
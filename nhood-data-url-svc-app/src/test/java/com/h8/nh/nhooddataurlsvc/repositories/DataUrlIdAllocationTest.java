@@ -0,0 +1,47 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:id-allocation;DB_CLOSE_DELAY=-1")
+class DataUrlIdAllocationTest {
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Test
+    void shouldNotGiveOutIdsOfReservedBlocksToJpaInsertsOnEmptySchema() {
+        // given
+        var reserved = new HashSet<Long>();
+        var persisted = new HashSet<Long>();
+
+        // when
+        for (int round = 0; round < 5; round++) {
+            var first = repository.allocateIds();
+            for (long id = first; id < first + DataUrl.ID_ALLOCATION_SIZE; id++) {
+                reserved.add(id);
+            }
+            for (int i = 0; i < DataUrl.ID_ALLOCATION_SIZE / 2 + round * 20; i++) {
+                persisted.add(repository.save(DataUrl.builder()
+                        .key(List.of("KEY", round + "-" + i))
+                        .url("URL" + i)
+                        .build())
+                        .getId());
+            }
+        }
+
+        // then
+        assertThat(reserved).hasSize(5 * DataUrl.ID_ALLOCATION_SIZE);
+        assertThat(persisted).doesNotContainAnyElementsOf(reserved);
+    }
+}
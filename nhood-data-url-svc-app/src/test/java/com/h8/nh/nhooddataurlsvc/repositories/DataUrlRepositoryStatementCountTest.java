@@ -0,0 +1,111 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Import(StatementCountingConfiguration.class)
+class DataUrlRepositoryStatementCountTest {
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Autowired
+    private DataUrlService service;
+
+    private DataUrl entry;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        entry = repository.save(DataUrl.builder()
+                .key(keyOfSize(3))
+                .url("URL1")
+                .build());
+        StatementCountingConfiguration.reset();
+    }
+
+    @Test
+    void shouldModifyDataUrlWithSingleStatementWhenSegmentsAreKnown() {
+        // when
+        service.modify(entry.getId(), DataUrl.builder()
+                .key(keyOfSize(2))
+                .url("URL2")
+                .build());
+
+        // then
+        assertThat(StatementCountingConfiguration.count()).isEqualTo(1);
+        assertThat(repository.findById(entry.getId()))
+                .hasValueSatisfying(l -> {
+                    assertThat(l.getKey()).isEqualTo(keyOfSize(2));
+                    assertThat(l.getUrl()).isEqualTo("URL2");
+                });
+    }
+
+    @Test
+    void shouldRegisterNewSegmentsWithSingleBatchRegardlessOfKeySize() {
+        // given
+        var key = IntStream.range(0, 20)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .collect(Collectors.toList());
+
+        // when
+        service.modify(entry.getId(), DataUrl.builder()
+                .key(key)
+                .url("URL3")
+                .build());
+
+        // then
+        assertThat(StatementCountingConfiguration.count()).isEqualTo(2);
+        assertThat(repository.findById(entry.getId()))
+                .hasValueSatisfying(l -> {
+                    assertThat(l.getKey()).isEqualTo(key);
+                    assertThat(l.getUrl()).isEqualTo("URL3");
+                });
+    }
+
+    @Test
+    void shouldModifyNothingWithSingleStatementWhenDataUrlDoesNotExist() {
+        // when
+        var result = service.modify(Long.MAX_VALUE, DataUrl.builder()
+                .key(keyOfSize(2))
+                .url("URL2")
+                .build());
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(StatementCountingConfiguration.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeleteDataUrlWithSingleStatement() {
+        // when
+        var result = service.delete(entry.getId());
+
+        // then
+        assertThat(result).isTrue();
+        assertThat(StatementCountingConfiguration.count()).isEqualTo(1);
+        assertThat(repository.existsById(entry.getId())).isFalse();
+    }
+
+    private static List<String> keyOfSize(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> "KEY" + i)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,74 @@
+package com.h8.nh.nhooddataurlsvc.repositories;
+
+import com.h8.nh.nhooddataurlsvc.dictionaries.DataUrlDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataUrlStorageMigrationTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DataUrlDictionary dictionary;
+
+    private DataUrlStorageMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table data_url_segment (id int primary key, segment varchar(255) not null)");
+        jdbcTemplate.execute("create table data_url_prefix (id int primary key, prefix varchar(255) not null)");
+        jdbcTemplate.execute("create table data_url (id bigint primary key, url varchar(255), "
+                + "url_codes varbinary(1024), key_codes varbinary(4096))");
+        jdbcTemplate.execute("create table data_url_key (data_url_id bigint not null, key_order int not null, "
+                + "key_segment varchar(255), primary key (data_url_id, key_order))");
+        dictionary = new DataUrlDictionary(jdbcTemplate);
+        migration = new DataUrlStorageMigration(
+                jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)), dictionary);
+    }
+
+    @Test
+    void shouldMoveLegacyEntriesToCodedColumnsOnMigrate() {
+        // given
+        var size = DataUrlStorageMigration.CHUNK_SIZE + 1;
+        for (long id = 1; id <= size; id++) {
+            jdbcTemplate.update("insert into data_url (id, url) values (?, ?)", id, "http://localhost/data/" + id);
+            jdbcTemplate.update("insert into data_url_key values (?, 1, ?)", id, "artist-" + id);
+            jdbcTemplate.update("insert into data_url_key values (?, 0, 'music')", id);
+        }
+
+        // when
+        migration.migrate();
+
+        // then
+        var codes = jdbcTemplate.queryForMap("select url_codes, key_codes from data_url where id = ?", (long) size);
+        assertThat(dictionary.decodeUrl((byte[]) codes.get("URL_CODES"))).isEqualTo("http://localhost/data/" + size);
+        assertThat(dictionary.decodeKey((byte[]) codes.get("KEY_CODES"))).isEqualTo(List.of("music", "artist-" + size));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from data_url where key_codes is null", Integer.class))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.tables where lower(table_name) = 'data_url_key'", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void shouldDoNothingWithoutLegacyTableOnMigrate() {
+        // given
+        jdbcTemplate.execute("drop table data_url_key");
+
+        // when
+        migration.migrate();
+
+        // then
+        assertThat(jdbcTemplate.queryForObject("select count(*) from data_url_segment", Integer.class)).isZero();
+    }
+}
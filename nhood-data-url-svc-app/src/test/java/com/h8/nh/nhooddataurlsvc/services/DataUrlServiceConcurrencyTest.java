@@ -0,0 +1,234 @@
+package com.h8.nh.nhooddataurlsvc.services;
+
+import com.h8.nh.nhooddataurlsvc.buffers.DataUrlWriteBuffer;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlCache;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlReadFlights;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlChangeLog;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlBatchProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlConcurrencyProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlKeyIndex;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import com.h8.nh.nhooddataurlsvc.locks.DataUrlStripedLocks;
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
+import com.h8.nh.nhooddataurlsvc.replicas.DataUrlReplicaStore;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlQueryRepository;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent writes to a few hot entries, with and without striped locks
+ * held across the database write. Checks that no write is lost and that
+ * the indexes, the cache and the change log end up at the stored state.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:concurrency;DB_CLOSE_DELAY=-1")
+class DataUrlServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int WRITES_PER_THREAD = 100;
+
+    private static final int HOT_ENTRIES = 3;
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Autowired
+    private DataUrlQueryRepository queryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataUrlKeyIndex keyIndex;
+
+    @Autowired
+    private DataUrlVersionIndex versionIndex;
+
+    @Autowired
+    private DataUrlCache cache;
+
+    @Autowired
+    private DataUrlReadFlights flights;
+
+    @Autowired
+    private DataUrlReplicaStore replica;
+
+    @Autowired
+    private DataUrlChangeLog changeLog;
+
+    @Autowired
+    private DataUrlWriteBuffer writeBuffer;
+
+    @Autowired
+    private DataUrlMetrics metrics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        ids = new ArrayList<>();
+        for (int i = 0; i < HOT_ENTRIES; i++) {
+            ids.add(repository.save(DataUrl.builder()
+                    .key(List.of("hot", "entry-" + i, "initial"))
+                    .url("count/0")
+                    .build()).getId());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"true", "false"})
+    void shouldApplyEveryWriteAndPublishStoredStateWhenSameEntriesAreModifiedConcurrently(
+            boolean stripedLocks) throws Exception {
+        // given
+        var service = service(stripedLocks);
+        service.rebuildIndexes();
+        var before = storedVersions();
+        var since = service.changeSequence();
+
+        // when
+        concurrently(thread -> () -> {
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                var id = ids.get((thread + i) % HOT_ENTRIES);
+                service.findById(id);
+                service.modify(id, DataUrl.builder()
+                        .key(List.of("hot", "entry-" + ids.indexOf(id), "t" + thread + "-" + i))
+                        .url("url/" + thread + "/" + i)
+                        .build());
+            }
+            return null;
+        });
+
+        // then
+        var after = storedVersions();
+        var written = 0L;
+        for (int i = 0; i < HOT_ENTRIES; i++) {
+            var id = ids.get(i);
+            var stored = queryRepository.findById(id).orElseThrow();
+            written += after.get(i) - before.get(i);
+            assertThat(versionIndex.find(id).orElseThrow().getVersion()).isEqualTo(after.get(i));
+            assertThat(keyIndex.findByKey(stored.getKey())).containsExactly(id);
+            assertThat(keyIndex.findByKeyPrefix(List.of("hot", "entry-" + i))).containsExactly(id);
+            assertThat(service.findById(id)).contains(stored);
+            assertThat(lastChangedUrl(service, since, id)).isEqualTo(stored.getUrl());
+        }
+        assertThat(written).isEqualTo(THREADS * WRITES_PER_THREAD);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"true", "false"})
+    void shouldNotLoseIncrementsWhenSameEntryIsModifiedConcurrentlyAtReadVersion(
+            boolean stripedLocks) throws Exception {
+        // given
+        var service = service(stripedLocks);
+        service.rebuildIndexes();
+        var id = ids.get(0);
+
+        // when
+        concurrently(thread -> () -> {
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                while (true) {
+                    var version = service.findVersion(id).orElseThrow().getVersion();
+                    var current = service.findById(id).orElseThrow();
+                    var count = Long.parseLong(current.getUrl().substring("count/".length()));
+                    try {
+                        service.modify(id, DataUrl.builder()
+                                .key(current.getKey())
+                                .url("count/" + (count + 1))
+                                .version(version)
+                                .build());
+                        break;
+                    } catch (OptimisticLockingFailureException e) {
+                        // read again and retry, as a client would after a 412
+                    }
+                }
+            }
+            return null;
+        });
+
+        // then
+        assertThat(queryRepository.findById(id).orElseThrow().getUrl())
+                .isEqualTo("count/" + THREADS * WRITES_PER_THREAD);
+    }
+
+    private DataUrlService service(boolean stripedLocks) {
+        var properties = new DataUrlConcurrencyProperties();
+        properties.setStripedLocks(stripedLocks);
+        return new DataUrlService(
+                repository, queryRepository, entityManager, transactionTemplate, keyIndex, versionIndex, cache, flights,
+                replica, changeLog, new DataUrlStripedLocks(properties), writeBuffer, metrics,
+                new DataUrlBatchProperties(), properties);
+    }
+
+    private List<Long> storedVersions() {
+        var versions = new ArrayList<Long>();
+        for (var id : ids) {
+            versions.add(jdbcTemplate.queryForObject("select version from data_url where id = ?", Long.class, id));
+        }
+        return versions;
+    }
+
+    private static String lastChangedUrl(DataUrlService service, long since, Long id) {
+        return service.findChanges(since, Integer.MAX_VALUE)
+                .orElseThrow()
+                .stream()
+                .filter(l -> l.getId().equals(id))
+                .reduce((l, r) -> r)
+                .orElseThrow()
+                .getUrl();
+    }
+
+    private static void concurrently(Worker worker) throws Exception {
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var start = new CountDownLatch(1);
+            var tasks = new ArrayList<Future<Void>>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                var task = worker.task(thread);
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (var task : tasks) {
+                task.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Worker {
+
+        Callable<Void> task(int thread);
+    }
+}
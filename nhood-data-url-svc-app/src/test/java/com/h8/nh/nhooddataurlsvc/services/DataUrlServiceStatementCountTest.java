@@ -0,0 +1,112 @@
+package com.h8.nh.nhooddataurlsvc.services;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import com.h8.nh.nhooddataurlsvc.repositories.StatementCountingConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Import(StatementCountingConfiguration.class)
+class DataUrlServiceStatementCountTest {
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Autowired
+    private DataUrlService service;
+
+    @Test
+    void shouldStreamAllDataUrlsWithSingleStatementRegardlessOfRowCount() {
+        // given
+        initializeData(2);
+        List<DataUrlResponseDTO> few = new ArrayList<>();
+        var fewStatements = countStatements(() -> service.findAll(few::add));
+
+        initializeData(20);
+        List<DataUrlResponseDTO> many = new ArrayList<>();
+        var manyStatements = countStatements(() -> service.findAll(many::add));
+
+        // then
+        assertThat(fewStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(1);
+        assertThat(many).hasSize(20);
+        assertThat(many).allSatisfy(l -> assertThat(l.getKey()).hasSize(3));
+    }
+
+    @Test
+    void shouldFindPageWithSingleStatementRegardlessOfRowCount() {
+        // given
+        initializeData(2);
+        var fewStatements = countStatements(() -> touchKeys(service.findPage(0L, 100)));
+
+        initializeData(20);
+        var manyStatements = countStatements(() -> touchKeys(service.findPage(0L, 100)));
+
+        // then
+        assertThat(fewStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFindByKeyPrefixWithSingleStatementRegardlessOfRowCount() {
+        // given
+        initializeData(2);
+        var fewStatements = countStatements(() -> touchKeys(service.findByKeyPrefix(List.of())));
+
+        initializeData(20);
+        var manyStatements = countStatements(() -> touchKeys(service.findByKeyPrefix(List.of())));
+
+        // then
+        assertThat(fewStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRebuildIndexesWithSameStatementCountRegardlessOfRowCount() {
+        // given
+        initializeData(2);
+        var fewStatements = countStatements(service::rebuildIndexes);
+
+        initializeData(20);
+        var manyStatements = countStatements(service::rebuildIndexes);
+
+        // then
+        assertThat(manyStatements).isEqualTo(fewStatements);
+        assertThat(service.findByKeyPrefix(List.of())).hasSize(20);
+    }
+
+    private void initializeData(int size) {
+        repository.deleteAll();
+        service.createAll(IntStream.range(0, size)
+                .mapToObj(i -> DataUrl.builder()
+                        .key(List.of("KEY" + i + ".1", "KEY" + i + ".2", "KEY" + i + ".3"))
+                        .url("URL" + i)
+                        .build())
+                .collect(Collectors.toList()));
+        service.rebuildIndexes();
+    }
+
+    private static long countStatements(Runnable action) {
+        StatementCountingConfiguration.reset();
+        action.run();
+        return StatementCountingConfiguration.count();
+    }
+
+    private static void touchKeys(List<DataUrlResponseDTO> entries) {
+        entries.forEach(l -> assertThat(l.getKey()).hasSize(3));
+    }
+}
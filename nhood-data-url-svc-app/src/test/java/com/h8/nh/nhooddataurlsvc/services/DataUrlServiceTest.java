@@ -1,61 +1,239 @@
 package com.h8.nh.nhooddataurlsvc.services;
 
+import com.h8.nh.nhooddataurlsvc.buffers.DataUrlWriteBuffer;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlCache;
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlReadFlights;
+import com.h8.nh.nhooddataurlsvc.changes.DataUrlChangeLog;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlBatchProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCacheProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCoalescingProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlConcurrencyProperties;
 import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlKeyNode;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlKeyIndex;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import com.h8.nh.nhooddataurlsvc.locks.DataUrlStripedLocks;
+import com.h8.nh.nhooddataurlsvc.metrics.DataUrlMetrics;
+import com.h8.nh.nhooddataurlsvc.replicas.DataUrlReplicaStore;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlQueryRepository;
 import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class DataUrlServiceTest {
 
     private DataUrlRepository repository;
 
+    private DataUrlQueryRepository queryRepository;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private DataUrlKeyIndex keyIndex;
+
+    private DataUrlVersionIndex versionIndex;
+
+    private DataUrlCache cache;
+
+    private DataUrlReplicaStore replica;
+
+    private DataUrlChangeLog changeLog;
+
+    private DataUrlWriteBuffer writeBuffer;
+
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private DataUrlMetrics metrics;
+
     private DataUrlService service;
 
     @BeforeEach
     void setUp() {
         repository = mock(DataUrlRepository.class);
-        service = new DataUrlService(repository);
+        queryRepository = mock(DataUrlQueryRepository.class);
+        entityManager = mock(EntityManager.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        keyIndex = mock(DataUrlKeyIndex.class);
+        versionIndex = mock(DataUrlVersionIndex.class);
+        replica = mock(DataUrlReplicaStore.class);
+        changeLog = mock(DataUrlChangeLog.class);
+        writeBuffer = mock(DataUrlWriteBuffer.class);
+
+        var cacheProperties = new DataUrlCacheProperties();
+        cacheProperties.setEnabled(false);
+        cache = spy(new DataUrlCache(cacheProperties, versionIndex, new SimpleMeterRegistry()));
+
+        var batchProperties = new DataUrlBatchProperties();
+        batchProperties.setChunkSize(2);
+
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(i -> i.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        metrics = new DataUrlMetrics(registry);
+        var locks = new DataUrlStripedLocks(new DataUrlConcurrencyProperties());
+
+        var flights = new DataUrlReadFlights(new DataUrlCoalescingProperties(), registry);
+
+        service = new DataUrlService(
+                repository, queryRepository, entityManager, transactionTemplate, keyIndex, versionIndex, cache, flights,
+                replica, changeLog, locks, writeBuffer, metrics, batchProperties, new DataUrlConcurrencyProperties());
+    }
+
+    @Test
+    void shouldPutAllKeysIntoKeyIndexOnRebuildIndexes() {
+        // given
+        var keys = Map.of(1L, List.of("KEY1"));
+        when(queryRepository.findAllKeys()).thenReturn(keys);
+
+        // when
+        service.rebuildIndexes();
+
+        // then
+        verify(keyIndex, times(1)).clear();
+        verify(keyIndex, times(1)).putAll(keys);
+    }
+
+    @Test
+    void shouldPutKeyAndUrlOfEveryStreamedEntryIntoEnabledReplicaOnRebuildIndexes() {
+        // given
+        when(replica.isEnabled()).thenReturn(true);
+        var entry = new DataUrlResponseDTO();
+        entry.setId(1L);
+        entry.setKey(List.of("KEY1"));
+        entry.setUrl("URL1");
+        doAnswer(i -> {
+            i.<Consumer<DataUrlResponseDTO>>getArgument(0).accept(entry);
+            return null;
+        }).when(queryRepository).streamEntries(any());
+
+        // when
+        service.rebuildIndexes();
+
+        // then
+        verify(replica, times(1)).clear();
+        verify(replica, times(1)).put(1L, List.of("KEY1"), "URL1");
+        verify(keyIndex, times(1)).putAll(Map.of(1L, List.of("KEY1")));
+        verify(queryRepository, never()).findAllKeys();
+    }
+
+    @Test
+    void shouldNotStreamEntriesWhenReplicaIsDisabledOnRebuildIndexes() {
+        // given
+        when(queryRepository.findAllKeys()).thenReturn(Map.of());
+
+        // when
+        service.rebuildIndexes();
+
+        // then
+        verify(queryRepository, never()).streamEntries(any());
     }
 
     @Test
-    void shouldReturnDataUrlsReturnedFromRepositoryOnFindAll() {
+    void shouldPutEveryStreamedVersionIntoVersionIndexOnRebuildIndexes() {
         // given
-        List<DataUrl> all = List.of();
-        when(repository.findAll())
-                .thenReturn(all);
+        var version = version(1L);
+        doAnswer(i -> {
+            i.<Consumer<DataUrlVersion>>getArgument(0).accept(version);
+            return null;
+        }).when(queryRepository).streamVersions(any());
 
         // when
-        var result = service.findAll();
+        service.rebuildIndexes();
 
         // then
-        assertThat(result).isEqualTo(all);
+        verify(versionIndex, times(1)).clear();
+        verify(versionIndex, times(1)).put(version);
     }
 
     @Test
-    void shouldCallRepositoryFindAllOnFindAll() {
+    void shouldReturnVersionFromVersionIndexWithoutLoadingDataUrlOnFindVersion() {
+        // given
+        when(versionIndex.find(1L))
+                .thenReturn(Optional.of(version(1L)));
+
+        // when
+        var result = service.findVersion(1L);
+
+        // then
+        assertThat(result).contains(version(1L));
+        verifyZeroInteractions(queryRepository, repository);
+    }
+
+    @Test
+    void shouldPassConsumerToQueryRepositoryOnFindAll() {
+        // given
+        Consumer<DataUrlResponseDTO> consumer = l -> {};
+
         // when
-        service.findAll();
+        service.findAll(consumer);
 
         // then
-        verify(repository, times(1)).findAll();
+        verify(queryRepository, times(1)).streamAll(consumer);
     }
 
     @Test
-    void shouldReturnOptionalOfDataUrlReturnedFromRepositoryOnFindById() {
+    void shouldReturnPageReturnedFromQueryRepositoryOnFindPage() {
+        // given
+        var page = List.of(responseDTO(1L, "KEY1"));
+        when(queryRepository.findPage(any(), anyInt()))
+                .thenReturn(page);
+
+        // when
+        var result = service.findPage(0L, 10);
+
+        // then
+        assertThat(result).isEqualTo(page);
+    }
+
+    @Test
+    void shouldCallQueryRepositoryWithCursorAndLimitOnFindPage() {
+        // given
+        var after = new Random().nextLong();
+
+        // when
+        service.findPage(after, 25);
+
+        // then
+        verify(queryRepository, times(1)).findPage(after, 25);
+    }
+
+    @Test
+    void shouldReturnOptionalOfDataUrlReturnedFromQueryRepositoryOnFindById() {
         // given
         var id = new Random().nextLong();
 
-        Optional<DataUrl> one = Optional.empty();
-        when(repository.findById(any()))
+        Optional<DataUrlResponseDTO> one = Optional.empty();
+        when(queryRepository.findById(any()))
                 .thenReturn(one);
 
         // when
@@ -66,18 +244,298 @@ class DataUrlServiceTest {
     }
 
     @Test
-    void shouldCallRepositoryFindByIdOnFindById() {
+    void shouldCallQueryRepositoryFindByIdOnFindById() {
         // given
         var id = new Random().nextLong();
 
         ArgumentCaptor<Long> captor = ArgumentCaptor.forClass(Long.class);
 
+        when(queryRepository.findById(any()))
+                .thenReturn(Optional.empty());
+
         // when
         service.findById(id);
 
         // then
-        verify(repository, times(1)).findById(captor.capture());
+        verify(queryRepository, times(1)).findById(captor.capture());
         assertThat(captor.getValue()).isEqualTo(id);
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void shouldShareOneQueryWhenSameIdIsReadConcurrentlyOnFindById() throws Exception {
+        // given
+        var release = new CountDownLatch(1);
+        var dto = responseDTO(1L, "KEY1");
+
+        when(queryRepository.findById(1L))
+                .thenAnswer(i -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return Optional.of(dto);
+                });
+
+        // when
+        var reads = concurrently(8, () -> service.findById(1L));
+        awaitCalls("findById", 8);
+        release.countDown();
+
+        // then
+        for (var read : reads) {
+            assertThat(read.get(10, TimeUnit.SECONDS)).contains(dto);
+        }
+        verify(queryRepository, times(1)).findById(1L);
+        assertThat(registry.get("data_url.single_flight.shared").tag("method", "findById").counter().count())
+                .isEqualTo(7);
+    }
+
+    @Test
+    void shouldNotShareQueryStartedBeforeModificationOnFindById() throws Exception {
+        // given
+        var release = new CountDownLatch(1);
+        var entry = DataUrl.builder()
+                .key(List.of("KEY2"))
+                .url("URL2")
+                .build();
+
+        when(queryRepository.findById(1L))
+                .thenAnswer(i -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return Optional.of(responseDTO(1L, "KEY1"));
+                })
+                .thenReturn(Optional.of(responseDTO(1L, "KEY2")));
+        when(repository.updateById(1L, entry))
+                .thenReturn(Optional.of(new DataUrlVersion(1L, 1L, Instant.EPOCH)));
+
+        var before = concurrently(1, () -> service.findById(1L)).get(0);
+        awaitCalls("findById", 1);
+        service.modify(1L, entry);
+
+        // when
+        var after = service.findById(1L);
+
+        // then
+        release.countDown();
+        assertThat(after.orElseThrow().getKey()).containsExactly("KEY2");
+        assertThat(before.get(10, TimeUnit.SECONDS).orElseThrow().getKey()).containsExactly("KEY1");
+        verify(queryRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldShareOneQueryWhenSamePageIsReadConcurrentlyOnFindPage() throws Exception {
+        // given
+        var release = new CountDownLatch(1);
+        var page = List.of(responseDTO(1L, "KEY1"), responseDTO(2L, "KEY2"));
+
+        when(queryRepository.findPage(0L, 2))
+                .thenAnswer(i -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return page;
+                });
+
+        // when
+        var reads = concurrently(4, () -> service.findPage(0L, 2));
+        awaitCalls("findPage", 4);
+        release.countDown();
+
+        // then
+        for (var read : reads) {
+            assertThat(read.get(10, TimeUnit.SECONDS)).isEqualTo(page);
+        }
+        verify(queryRepository, times(1)).findPage(0L, 2);
+    }
+
+    @Test
+    void shouldReturnDataUrlFromEnabledReplicaWithoutQueryingOnFindById() {
+        // given
+        var entry = responseDTO(1L, "KEY1");
+        when(replica.isEnabled()).thenReturn(true);
+        when(replica.find(1L)).thenReturn(Optional.of(entry));
+
+        // when
+        var result = service.findById(1L);
+
+        // then
+        assertThat(result).contains(entry);
+        verify(queryRepository, never()).findById(any());
+        verify(cache, never()).get(any(), any());
+    }
+
+    @Test
+    void shouldReturnDataUrlsOfIdsFoundInKeyIndexSortedByIdOnFindByKey() {
+        // given
+        var key = List.of("KEY1");
+        var first = responseDTO(1L, "KEY1");
+        var second = responseDTO(2L, "KEY1");
+
+        when(keyIndex.findByKey(key))
+                .thenReturn(List.of(1L, 2L));
+        when(queryRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(second, first));
+
+        // when
+        var result = service.findByKey(key);
+
+        // then
+        assertThat(result).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldNotCallQueryRepositoryWhenKeyIsNotIndexedOnFindByKey() {
+        // given
+        when(keyIndex.findByKey(any()))
+                .thenReturn(List.of());
+
+        // when
+        var result = service.findByKey(List.of("KEY1"));
+
+        // then
+        assertThat(result).isEmpty();
+        verify(queryRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldReturnDataUrlsOfIdsFoundInKeyIndexOnFindByKeyPrefix() {
+        // given
+        var prefix = List.of("KEY1");
+        var entry = responseDTO(1L, "KEY1", "KEY2");
+
+        when(keyIndex.findByKeyPrefix(prefix))
+                .thenReturn(List.of(1L));
+        when(queryRepository.findAllById(List.of(1L)))
+                .thenReturn(List.of(entry));
+
+        // when
+        var result = service.findByKeyPrefix(prefix);
+
+        // then
+        assertThat(result).containsExactly(entry);
+    }
+
+    @Test
+    void shouldReturnFoundDataUrlsOnceInRequestOrderOnFindAllById() {
+        // given
+        var first = responseDTO(1L, "KEY1");
+        var second = responseDTO(2L, "KEY2");
+
+        when(queryRepository.findAllById(List.of(2L, 3L, 1L)))
+                .thenReturn(List.of(first, second));
+
+        // when
+        var result = service.findAllById(List.of(2L, 3L, 2L, 1L));
+
+        // then
+        assertThat(result).containsExactly(second, first);
+    }
+
+    @Test
+    void shouldQueryOnlyIdsMissingFromCacheOnFindAllById() {
+        // given
+        var cached = responseDTO(1L, "KEY1");
+        var missing = responseDTO(2L, "KEY2");
+        var service = withCache();
+        when(versionIndex.find(1L))
+                .thenReturn(Optional.of(version(1L)));
+        when(queryRepository.findById(1L))
+                .thenReturn(Optional.of(cached));
+        when(queryRepository.findAllById(List.of(2L)))
+                .thenReturn(List.of(missing));
+        service.findById(1L);
+
+        // when
+        var result = service.findAllById(List.of(2L, 1L));
+
+        // then
+        assertThat(result).containsExactly(missing, cached);
+        verify(queryRepository, times(1)).findAllById(List.of(2L));
+    }
+
+    @Test
+    void shouldNotQueryWhenNoIdsAreGivenOnFindAllById() {
+        // when
+        var result = service.findAllById(List.of());
+
+        // then
+        assertThat(result).isEmpty();
+        verify(queryRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldReturnKeyNodeWithEntriesRegisteredUnderItOnFindTree() {
+        // given
+        var key = List.of("KEY1");
+        var entry = responseDTO(1L, "KEY1");
+
+        when(keyIndex.findNode(key))
+                .thenReturn(Optional.of(new DataUrlKeyNode(key, List.of(1L), Map.of("KEY2", 3), 4)));
+        when(queryRepository.findAllById(List.of(1L)))
+                .thenReturn(List.of(entry));
+
+        // when
+        var result = service.findTree(key);
+
+        // then
+        assertThat(result).hasValueSatisfying(l -> {
+            assertThat(l.getKey()).isEqualTo(key);
+            assertThat(l.getEntries()).containsExactly(entry);
+            assertThat(l.getChildren()).containsExactly(Map.entry("KEY2", 3));
+            assertThat(l.getSize()).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void shouldReturnEmptyWhenNoKeyIsPrefixOnFindTreeByLongestPrefix() {
+        // given
+        when(keyIndex.findLongestPrefix(any()))
+                .thenReturn(Optional.empty());
+
+        // when
+        var result = service.findTreeByLongestPrefix(List.of("KEY1"));
+
+        // then
+        assertThat(result).isEmpty();
+        verify(queryRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldPutCreatedDataUrlIntoKeyIndexOnCreate() {
+        // given
+        var created = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1"))
+                .version(0L)
+                .lastModified(Instant.EPOCH)
+                .build();
+
+        when(repository.save(any()))
+                .thenReturn(created);
+
+        // when
+        service.create(mock(DataUrl.class));
+
+        // then
+        verify(keyIndex, times(1)).put(1L, List.of("KEY1"));
+        verify(versionIndex, times(1)).put(new DataUrlVersion(1L, 0L, Instant.EPOCH));
+    }
+
+    @Test
+    void shouldPutCreatedDataUrlIntoReplicaOnCreate() {
+        // given
+        var created = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .version(0L)
+                .lastModified(Instant.EPOCH)
+                .build();
+
+        when(repository.save(any()))
+                .thenReturn(created);
+
+        // when
+        service.create(mock(DataUrl.class));
+
+        // then
+        verify(replica, times(1)).put(1L, List.of("KEY1"), "URL1");
     }
 
     @Test
@@ -103,6 +561,9 @@ class DataUrlServiceTest {
 
         ArgumentCaptor<DataUrl> captor = ArgumentCaptor.forClass(DataUrl.class);
 
+        when(repository.save(any()))
+                .thenReturn(entry);
+
         // when
         service.create(entry);
 
@@ -112,159 +573,552 @@ class DataUrlServiceTest {
     }
 
     @Test
-    void shouldReturnEmptyDataUrlIfIdDoesNotExistInRepositoryOnModify() {
+    void shouldReturnBufferedDataUrlWithoutSavingOnCreate() {
+        // given
+        var entry = mock(DataUrl.class);
+        var buffered = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .build();
+
+        when(writeBuffer.offer(entry))
+                .thenReturn(Optional.of(buffered));
+
+        // when
+        var result = service.create(entry);
+
+        // then
+        assertThat(result).isEqualTo(buffered);
+        verify(repository, never()).save(any());
+        verify(keyIndex, never()).put(any(), any());
+        verify(changeLog, never()).upserted(any());
+    }
+
+    @Test
+    void shouldInsertAndPublishBatchFlushedFromWriteBuffer() {
+        // given
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Function<List<DataUrl>, List<DataUrl>>> store = ArgumentCaptor.forClass(Function.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<List<DataUrl>>> publish = ArgumentCaptor.forClass(Consumer.class);
+        verify(writeBuffer).flushTo(store.capture(), publish.capture());
+
+        var buffered = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .lastModified(Instant.EPOCH)
+                .build();
+        var inserted = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .version(0L)
+                .lastModified(Instant.EPOCH)
+                .build();
+
+        when(repository.insertAll(List.of(buffered)))
+                .thenReturn(List.of(inserted));
+
+        // when
+        publish.getValue().accept(store.getValue().apply(List.of(buffered)));
+
+        // then
+        verify(keyIndex, times(1)).put(1L, List.of("KEY1"));
+        verify(replica, times(1)).put(1L, List.of("KEY1"), "URL1");
+        verify(versionIndex, times(1)).put(new DataUrlVersion(1L, 0L, Instant.EPOCH));
+        verify(changeLog, times(1)).upserted(inserted);
+    }
+
+    @Test
+    void shouldReturnEmptyDataUrlIfNoRowWasUpdatedOnModify() {
         // given
         var id = new Random().nextLong();
 
-        var entry = mock(DataUrl.class);
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.empty());
 
-        Optional<DataUrl> one = Optional.empty();
-        when(repository.findById(any()))
-                .thenReturn(one);
+        // when
+        var result = service.modify(id, new DataUrl());
+
+        // then
+        assertThat(result).isEmpty();
+        verify(keyIndex, never()).put(any(), any());
+        verify(cache, never()).invalidate(any());
+    }
+
+    @Test
+    void shouldNotReadDataUrlBeforeUpdatingItOnModify() {
+        // given
+        var id = new Random().nextLong();
+
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
+
+        // when
+        service.modify(id, new DataUrl());
+
+        // then
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void shouldReturnModifiedDataUrlOnModify() {
+        // given
+        var id = new Random().nextLong();
+        var entry = DataUrl.builder()
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .build();
+
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
 
         // when
         var result = service.modify(id, entry);
 
         // then
-        assertThat(result).isEqualTo(one);
+        assertThat(result).contains(DataUrl.builder()
+                .id(id)
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .version(1L)
+                .lastModified(Instant.EPOCH)
+                .build());
     }
 
     @Test
-    void shouldNotCallRepositorySaveWhenThereIsNoDataUrlToModifyOnModify() {
+    void shouldCallRepositoryUpdateByIdWithIdAndEntryOnModify() {
         // given
         var id = new Random().nextLong();
+        var entry = DataUrl.builder()
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .build();
 
-        var entry = mock(DataUrl.class);
+        // when
+        service.modify(id, entry);
 
-        when(repository.findById(any()))
-                .thenReturn(Optional.empty());
+        // then
+        verify(repository, times(1)).updateById(id, entry);
+    }
+
+    @Test
+    void shouldPutModifiedKeyIntoKeyIndexOnModify() {
+        // given
+        var id = new Random().nextLong();
+        var entry = DataUrl.builder()
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .build();
+
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
 
         // when
         service.modify(id, entry);
 
         // then
-        verify(repository, never()).save(any());
+        verify(keyIndex, times(1)).put(id, List.of("KEY1"));
     }
 
     @Test
-    void shouldReturnedSavedDataUrlFromRepositoryOnModify() {
+    void shouldInvalidateCachedDataUrlOnModify() {
         // given
         var id = new Random().nextLong();
 
-        var entry = mock(DataUrl.class);
-        var modified = mock(DataUrl.class);
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
 
-        when(repository.findById(any()))
-                .thenReturn(Optional.of(modified));
-        when(repository.save(any()))
-                .thenReturn(modified);
+        // when
+        service.modify(id, new DataUrl());
+
+        // then
+        verify(cache, times(1)).invalidate(id);
+    }
+
+    @Test
+    void shouldInvalidateCacheBeforePublishingNewVersionOnModify() {
+        // given
+        var id = new Random().nextLong();
+
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
 
         // when
-        var result = service.modify(id, entry);
+        service.modify(id, new DataUrl());
 
         // then
-        assertThat(result).isEqualTo(Optional.of(modified));
+        var order = inOrder(cache, versionIndex);
+        order.verify(cache).invalidate(id);
+        order.verify(versionIndex).put(version(id));
     }
 
     @Test
-    void shouldCallRepositorySaveWithModifiedPreviousDataUrlOnModify() {
+    void shouldAppendModifiedDataUrlWithNewVersionToChangeLogOnModify() {
         // given
         var id = new Random().nextLong();
         var entry = DataUrl.builder()
                 .key(List.of("KEY1"))
                 .url("URL1")
                 .build();
-        var previous = DataUrl.builder()
+
+        when(repository.updateById(any(), any()))
+                .thenAnswer(i -> Optional.of(version(i.getArgument(0))));
+
+        // when
+        service.modify(id, entry);
+
+        // then
+        verify(changeLog, times(1)).upserted(DataUrl.builder()
                 .id(id)
-                .key(List.of("KEY2"))
-                .url("URL2")
-                .build();
+                .key(List.of("KEY1"))
+                .url("URL1")
+                .version(version(id).getVersion())
+                .lastModified(version(id).getLastModified())
+                .build());
+    }
 
-        ArgumentCaptor<DataUrl> captor = ArgumentCaptor.forClass(DataUrl.class);
+    @Test
+    void shouldNotAppendToChangeLogIfNoRowWasUpdatedOnModify() {
+        // given
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.empty());
 
-        when(repository.findById(any()))
-                .thenReturn(Optional.of(previous));
+        // when
+        service.modify(1L, new DataUrl());
+
+        // then
+        verifyZeroInteractions(changeLog);
+    }
+
+    @Test
+    void shouldThrowOptimisticLockingFailureIfEntryIsNotAtGivenVersionOnModify() {
+        // given
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").version(1L).build();
+
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.empty());
+        when(versionIndex.find(1L))
+                .thenReturn(Optional.of(new DataUrlVersion(1L, 2L, Instant.EPOCH)));
+
+        // then
+        assertThatThrownBy(() -> service.modify(1L, entry))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(repository, times(1)).updateById(1L, entry);
+        verifyZeroInteractions(changeLog);
+    }
+
+    @Test
+    void shouldReturnEmptyIfEntryWithGivenVersionDoesNotExistOnModify() {
+        // given
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").version(1L).build();
+
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.empty());
 
         // when
-        service.modify(id, entry);
+        var result = service.modify(1L, entry);
 
         // then
-        verify(repository, times(1)).save(captor.capture());
-        assertThat(captor.getValue().getId())
-                .isEqualTo(previous.getId());
-        assertThat(captor.getValue().getKey())
-                .isEqualTo(entry.getKey());
-        assertThat(captor.getValue().getUrl())
-                .isEqualTo(entry.getUrl());
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldRetryUpdateFailingOnTransientConcurrencyErrorOnModify() {
+        // given
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").build();
+
+        when(repository.updateById(any(), any()))
+                .thenThrow(new CannotAcquireLockException("locked"))
+                .thenReturn(Optional.of(version(1L)));
+
+        // when
+        var result = service.modify(1L, entry);
+
+        // then
+        assertThat(result).isPresent();
+        verify(repository, times(2)).updateById(1L, entry);
+        assertThat(registry.get("data_url.write.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRethrowConcurrencyErrorAfterMaximumAttemptsOnModify() {
+        // given
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").build();
+
+        when(repository.updateById(any(), any()))
+                .thenThrow(new CannotAcquireLockException("locked"));
+
+        // then
+        assertThatThrownBy(() -> service.modify(1L, entry))
+                .isInstanceOf(CannotAcquireLockException.class);
+        verify(repository, times(new DataUrlConcurrencyProperties().getMaximumAttempts())).updateById(1L, entry);
+    }
+
+    @Test
+    void shouldNotPublishVersionOlderThanPublishedOneOnModify() {
+        // given
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").build();
+
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.of(version(1L)));
+        when(versionIndex.find(1L))
+                .thenReturn(Optional.of(new DataUrlVersion(1L, 2L, Instant.EPOCH)));
+
+        // when
+        var result = service.modify(1L, entry);
+
+        // then
+        assertThat(result).isPresent();
+        verify(keyIndex, never()).put(any(), any());
+        verify(versionIndex, never()).put(any());
+        verifyZeroInteractions(changeLog);
     }
 
     @Test
-    void shouldReturnEmptyDataUrlIfIdDoesNotExistInRepositoryOnDelete() {
+    void shouldNotRepublishEntryWhoseModificationIsPublishedAfterItsDeleteOnModify() {
+        // given
+        var versionIndex = new DataUrlVersionIndex();
+        var service = service(cache, versionIndex);
+        var entry = DataUrl.builder().key(List.of("KEY1")).url("URL1").build();
+        versionIndex.put(new DataUrlVersion(1L, 0L, Instant.EPOCH));
+
+        when(repository.removeById(1L))
+                .thenReturn(1);
+        when(repository.updateById(any(), any()))
+                .thenReturn(Optional.of(version(1L)));
+
+        // when
+        service.delete(1L);
+        service.modify(1L, entry);
+
+        // then
+        assertThat(versionIndex.find(1L)).isEmpty();
+        verify(keyIndex, never()).put(any(), any());
+        verify(replica, never()).put(any(), any(), any());
+        verify(changeLog, times(1)).deleted(1L);
+        verify(changeLog, never()).upserted(any());
+    }
+
+    @Test
+    void shouldReturnFalseIfNoRowWasRemovedOnDelete() {
         // given
         var id = new Random().nextLong();
 
-        Optional<DataUrl> one = Optional.empty();
-        when(repository.findById(any()))
-                .thenReturn(one);
+        when(repository.removeById(any()))
+                .thenReturn(0);
 
         // when
         var result = service.delete(id);
 
         // then
-        assertThat(result).isEqualTo(one);
+        assertThat(result).isFalse();
+        verify(keyIndex, never()).remove(any());
+        verify(cache, never()).invalidate(any());
+        verify(changeLog, never()).deleted(any());
     }
 
     @Test
-    void shouldNotCallRepositoryDeleteWhenThereIsNoDataUrlToDeleteOnDelete() {
+    void shouldReturnTrueIfRowWasRemovedOnDelete() {
         // given
         var id = new Random().nextLong();
 
-        when(repository.findById(any()))
-                .thenReturn(Optional.empty());
+        when(repository.removeById(any()))
+                .thenReturn(1);
+
+        // when
+        var result = service.delete(id);
+
+        // then
+        assertThat(result).isTrue();
+        verify(versionIndex, times(1)).remove(id);
+        verify(changeLog, times(1)).deleted(id);
+    }
+
+    @Test
+    void shouldCallRepositoryRemoveByIdWithoutReadingDataUrlOnDelete() {
+        // given
+        var id = new Random().nextLong();
 
         // when
         service.delete(id);
 
         // then
+        verify(repository, times(1)).removeById(id);
+        verify(repository, never()).findById(any());
         verify(repository, never()).delete(any());
     }
 
     @Test
-    void shouldReturnDeletedDataUrlFromRepositoryOnDelete() {
+    void shouldRemoveDeletedDataUrlFromKeyIndexOnDelete() {
         // given
         var id = new Random().nextLong();
 
-        var deleted = mock(DataUrl.class);
-
-        when(repository.findById(any()))
-                .thenReturn(Optional.of(deleted));
-        when(repository.save(any()))
-                .thenReturn(deleted);
+        when(repository.removeById(any()))
+                .thenReturn(1);
 
         // when
-        var result = service.delete(id);
+        service.delete(id);
 
         // then
-        assertThat(result).isEqualTo(Optional.of(deleted));
+        verify(keyIndex, times(1)).remove(id);
     }
 
     @Test
-    void shouldCallRepositoryDeleteWithFoundDataUrlOnDelete() {
+    void shouldInvalidateCachedDataUrlOnDelete() {
         // given
         var id = new Random().nextLong();
 
-        var found = mock(DataUrl.class);
+        when(repository.removeById(any()))
+                .thenReturn(1);
 
-        ArgumentCaptor<DataUrl> captor = ArgumentCaptor.forClass(DataUrl.class);
+        // when
+        service.delete(id);
+
+        // then
+        verify(cache, times(1)).invalidate(id);
+    }
+
+    @Test
+    void shouldRemoveDeletedDataUrlFromReplicaOnDelete() {
+        // given
+        var id = new Random().nextLong();
 
-        when(repository.findById(any()))
-                .thenReturn(Optional.of(found));
+        when(repository.removeById(any()))
+                .thenReturn(1);
 
         // when
         service.delete(id);
 
         // then
-        verify(repository, times(1)).delete(captor.capture());
-        assertThat(captor.getValue()).isEqualTo(found);
+        verify(replica, times(1)).remove(id);
+    }
+
+    @Test
+    void shouldSaveEntriesInTransactionalChunksOnCreateAll() {
+        // given
+        var entries = List.of(
+                DataUrl.builder().url("URL1").version(0L).build(),
+                DataUrl.builder().url("URL2").version(0L).build(),
+                DataUrl.builder().url("URL3").version(0L).build());
+
+        when(repository.saveAll(any()))
+                .thenAnswer(i -> i.getArgument(0));
+
+        // when
+        var result = service.createAll(entries);
+
+        // then
+        assertThat(result).isEqualTo(entries);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(repository, times(1)).saveAll(entries.subList(0, 2));
+        verify(repository, times(1)).saveAll(entries.subList(2, 3));
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void shouldPutCreatedEntriesIntoKeyIndexOnCreateAll() {
+        // given
+        var entry = DataUrl.builder().id(1L).key(List.of("KEY1")).version(0L).build();
+
+        when(repository.saveAll(any()))
+                .thenAnswer(i -> i.getArgument(0));
+
+        // when
+        service.createAll(List.of(entry));
+
+        // then
+        verify(keyIndex, times(1)).put(1L, List.of("KEY1"));
+    }
+
+    @Test
+    void shouldModifyFoundEntriesAndReturnTheirIdsOnModifyAll() {
+        // given
+        var entries = List.of(
+                DataUrl.builder().id(1L).key(List.of("KEY2")).url("URL2").build(),
+                DataUrl.builder().id(2L).key(List.of("KEY3")).url("URL3").build());
+
+        when(repository.updateAllById(entries))
+                .thenReturn(List.of(version(1L)));
+
+        // when
+        var result = service.modifyAll(entries);
+
+        // then
+        assertThat(result).containsExactly(1L);
+        verify(keyIndex, times(1)).put(1L, List.of("KEY2"));
+        verify(cache, times(1)).invalidate(1L);
+        verify(versionIndex, times(1)).put(version(1L));
+        verify(keyIndex, never()).put(eq(2L), any());
+    }
+
+    @Test
+    void shouldDeleteFoundEntriesAndReturnTheirIdsOnDeleteAll() {
+        // given
+        when(repository.removeAllById(List.of(1L, 2L)))
+                .thenReturn(new int[]{1, 0});
+
+        // when
+        var result = service.deleteAll(List.of(1L, 2L));
+
+        // then
+        assertThat(result).containsExactly(1L);
+        verify(keyIndex, times(1)).remove(1L);
+        verify(cache, times(1)).invalidate(1L);
+        verify(keyIndex, never()).remove(2L);
+    }
+
+    private DataUrlService withCache() {
+        return service(new DataUrlCache(new DataUrlCacheProperties(), versionIndex, new SimpleMeterRegistry()),
+                versionIndex);
+    }
+
+    private DataUrlService service(DataUrlCache cache, DataUrlVersionIndex versionIndex) {
+        var flights = new DataUrlReadFlights(new DataUrlCoalescingProperties(), new SimpleMeterRegistry());
+        return new DataUrlService(
+                repository, queryRepository, entityManager, transactionTemplate, keyIndex, versionIndex, cache, flights,
+                replica, changeLog, new DataUrlStripedLocks(new DataUrlConcurrencyProperties()), writeBuffer, metrics,
+                new DataUrlBatchProperties(), new DataUrlConcurrencyProperties());
+    }
+
+    private static DataUrlVersion version(Long id) {
+        return new DataUrlVersion(id, 1L, Instant.EPOCH);
+    }
+
+    private static <T> List<CompletableFuture<T>> concurrently(int callers, Supplier<T> call) {
+        var calls = new ArrayList<CompletableFuture<T>>();
+        for (int i = 0; i < callers; i++) {
+            var thread = new CompletableFuture<T>();
+            new Thread(() -> {
+                try {
+                    thread.complete(call.get());
+                } catch (RuntimeException e) {
+                    thread.completeExceptionally(e);
+                }
+            }).start();
+            calls.add(thread);
+        }
+        return calls;
+    }
+
+    private void awaitCalls(String method, int count) throws InterruptedException {
+        var calls = registry.get("data_url.single_flight.calls").tag("method", method).counter();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls.count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // let the callers that were counted last reach the running load
+        Thread.sleep(200);
+    }
+
+    private static DataUrlResponseDTO responseDTO(Long id, String... key) {
+        var dto = new DataUrlResponseDTO();
+        dto.setId(id);
+        dto.setKey(List.of(key));
+        dto.setUrl("URL" + id);
+        return dto;
     }
 }
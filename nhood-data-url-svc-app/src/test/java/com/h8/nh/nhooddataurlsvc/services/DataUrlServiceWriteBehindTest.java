@@ -0,0 +1,146 @@
+package com.h8.nh.nhooddataurlsvc.services;
+
+import com.h8.nh.nhooddataurlsvc.buffers.DataUrlWriteBuffer;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlQueryRepository;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1",
+        "nhood.data-url.write-behind.enabled=true",
+        "nhood.data-url.write-behind.batch-size=50"})
+class DataUrlServiceWriteBehindTest {
+
+    @Autowired
+    private DataUrlService service;
+
+    @Autowired
+    private DataUrlRepository repository;
+
+    @Autowired
+    private DataUrlQueryRepository queryRepository;
+
+    @Autowired
+    private DataUrlWriteBuffer writeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        service.rebuildIndexes();
+    }
+
+    @Test
+    void shouldStoreBufferedEntriesUnderReturnedIdsOnCreate() throws Exception {
+        // given
+        var entries = 500;
+
+        // when
+        var created = new ArrayList<DataUrl>();
+        for (int i = 0; i < entries; i++) {
+            created.add(service.create(entry("buffered", i)));
+        }
+        awaitStored(created.stream().map(DataUrl::getId).collect(Collectors.toList()));
+
+        // then
+        for (var entry : created) {
+            var stored = service.findById(entry.getId()).orElseThrow();
+            assertThat(stored.getKey()).isEqualTo(entry.getKey());
+            assertThat(stored.getUrl()).isEqualTo(entry.getUrl());
+            assertThat(service.findVersion(entry.getId()).orElseThrow().getVersion()).isZero();
+            assertThat(service.findByKey(entry.getKey())).hasSize(1);
+        }
+    }
+
+    @Test
+    void shouldNotReuseIdsOfEntriesCreatedWithoutBufferWhenCreatedConcurrently() throws Exception {
+        // given
+        var entries = 300;
+
+        // when
+        var buffered = CompletableFuture.supplyAsync(() -> {
+            var ids = new ArrayList<Long>();
+            for (int i = 0; i < entries; i++) {
+                ids.add(service.create(entry("buffered", i)).getId());
+            }
+            return ids;
+        });
+        var batched = CompletableFuture.supplyAsync(() -> {
+            var ids = new ArrayList<Long>();
+            for (int i = 0; i < entries; i += 30) {
+                var chunk = new ArrayList<DataUrl>();
+                for (int j = i; j < i + 30; j++) {
+                    chunk.add(entry("batched", j));
+                }
+                service.createAll(chunk).forEach(l -> ids.add(l.getId()));
+            }
+            return ids;
+        });
+        var ids = new HashSet<Long>(buffered.get(1, TimeUnit.MINUTES));
+        ids.addAll(batched.get(1, TimeUnit.MINUTES));
+        awaitStored(ids);
+
+        // then
+        assertThat(ids).hasSize(2 * entries);
+        assertThat(queryRepository.findAllById(List.copyOf(ids))).hasSize(2 * entries);
+    }
+
+    @Test
+    void shouldDeleteEntryStillInBufferOnDelete() {
+        // given
+        var created = service.create(entry("buffered", 0));
+
+        // when
+        var deleted = service.delete(created.getId());
+
+        // then
+        assertThat(deleted).isTrue();
+        assertThat(service.findById(created.getId())).isEmpty();
+        assertThat(queryRepository.findById(created.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldModifyEntryStillInBufferOnModify() {
+        // given
+        var created = service.create(entry("buffered", 0));
+
+        // when
+        var modified = service.modify(created.getId(), entry("modified", 0));
+
+        // then
+        assertThat(modified).isPresent();
+        assertThat(service.findById(created.getId()).orElseThrow().getKey())
+                .isEqualTo(List.of("modified", "KEY0"));
+    }
+
+    private void awaitStored(Collection<Long> ids) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!ids.stream().allMatch(l -> service.findVersion(l).isPresent()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(writeBuffer.size()).isZero();
+    }
+
+    private static DataUrl entry(String group, int i) {
+        return DataUrl.builder()
+                .key(List.of(group, "KEY" + i))
+                .url("URL" + i)
+                .build();
+    }
+}
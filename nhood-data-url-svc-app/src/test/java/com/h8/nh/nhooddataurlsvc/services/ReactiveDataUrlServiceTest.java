@@ -0,0 +1,86 @@
+package com.h8.nh.nhooddataurlsvc.services;
+
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlExecutionProperties;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.h8.nh.nhooddataurlsvc.services.ReactiveDataUrlService.FIND_ALL_PAGE_SIZE;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveDataUrlServiceTest {
+
+    private DataUrlService service;
+
+    private ReactiveDataUrlService reactiveService;
+
+    @BeforeEach
+    void setUp() {
+        service = mock(DataUrlService.class);
+        reactiveService = new ReactiveDataUrlService(service, new DataUrlExecutionProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveService.destroy();
+    }
+
+    @Test
+    void shouldReadAllPagesInIdOrderOnFindAll() {
+        // given
+        when(service.findPage(0L, FIND_ALL_PAGE_SIZE)).thenReturn(page(1, FIND_ALL_PAGE_SIZE));
+        when(service.findPage((long) FIND_ALL_PAGE_SIZE, FIND_ALL_PAGE_SIZE)).thenReturn(page(FIND_ALL_PAGE_SIZE + 1, 3));
+
+        // then
+        StepVerifier.create(reactiveService.findAll())
+                .expectNextCount(FIND_ALL_PAGE_SIZE + 3)
+                .verifyComplete();
+        verify(service, times(2)).findPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldReadNextPageOnlyWhenRequestedOnFindAll() {
+        // given
+        when(service.findPage(anyLong(), eq(FIND_ALL_PAGE_SIZE)))
+                .thenAnswer(i -> page(i.<Long>getArgument(0) + 1, FIND_ALL_PAGE_SIZE));
+
+        // then
+        StepVerifier.create(reactiveService.findAll(), 1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        verify(service, times(1)).findPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldCompleteEmptyWhenServiceFindsNothingOnFindById() {
+        // given
+        when(service.findById(1L)).thenReturn(Optional.empty());
+
+        // then
+        StepVerifier.create(reactiveService.findById(1L))
+                .verifyComplete();
+    }
+
+    private static List<DataUrlResponseDTO> page(long from, int size) {
+        return LongStream.range(from, from + size)
+                .mapToObj(l -> {
+                    var dto = new DataUrlResponseDTO();
+                    dto.setId(l);
+                    dto.setKey(List.of("KEY" + l));
+                    dto.setUrl("URL" + l);
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package com.h8.nh.nhooddataurlsvc.startup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ComponentIndexEnvironmentPostProcessorTest {
+
+    private String ignoreIndex;
+
+    @BeforeEach
+    void setUp() {
+        ignoreIndex = SpringProperties.getProperty(CandidateComponentsIndexLoader.IGNORE_INDEX);
+        SpringProperties.setProperty(CandidateComponentsIndexLoader.IGNORE_INDEX, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SpringProperties.setProperty(CandidateComponentsIndexLoader.IGNORE_INDEX, ignoreIndex);
+    }
+
+    @Test
+    void shouldIgnoreIndexWhenSwaggerIsEnabledOnPostProcessEnvironment() {
+        // given
+        var environment = new MockEnvironment();
+
+        // when
+        new ComponentIndexEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+
+        // then
+        assertThat(SpringProperties.getFlag(CandidateComponentsIndexLoader.IGNORE_INDEX)).isTrue();
+    }
+
+    @Test
+    void shouldKeepIgnoreIndexSetAlreadyOnPostProcessEnvironment() {
+        // given
+        SpringProperties.setProperty(CandidateComponentsIndexLoader.IGNORE_INDEX, "true");
+        var environment = new MockEnvironment()
+                .withProperty(ComponentIndexEnvironmentPostProcessor.SWAGGER_ENABLED, "false");
+
+        // when
+        new ComponentIndexEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+
+        // then
+        assertThat(SpringProperties.getFlag(CandidateComponentsIndexLoader.IGNORE_INDEX)).isTrue();
+    }
+
+    @Test
+    void shouldUseIndexWhenSwaggerIsDisabledOnPostProcessEnvironment() {
+        // given
+        var environment = new MockEnvironment()
+                .withProperty(ComponentIndexEnvironmentPostProcessor.SWAGGER_ENABLED, "false");
+
+        // when
+        new ComponentIndexEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+
+        // then
+        assertThat(SpringProperties.getFlag(CandidateComponentsIndexLoader.IGNORE_INDEX)).isFalse();
+    }
+}
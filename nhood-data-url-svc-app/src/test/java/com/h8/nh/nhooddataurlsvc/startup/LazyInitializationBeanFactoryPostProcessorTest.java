@@ -0,0 +1,60 @@
+package com.h8.nh.nhooddataurlsvc.startup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyInitializationBeanFactoryPostProcessorTest {
+
+    private static final AtomicInteger CREATED = new AtomicInteger();
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @BeforeEach
+    void setUp() {
+        CREATED.set(0);
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("first", new RootBeanDefinition(Counted.class));
+        beanFactory.registerBeanDefinition("second", new RootBeanDefinition(Counted.class));
+    }
+
+    @Test
+    void shouldNotCreateSingletonsOnPreInstantiation() {
+        // given
+        new LazyInitializationBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+
+        // when
+        beanFactory.preInstantiateSingletons();
+
+        // then
+        assertThat(beanFactory.getBeanDefinition("first").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("second").isLazyInit()).isTrue();
+        assertThat(CREATED).hasValue(0);
+    }
+
+    @Test
+    void shouldCreateSingletonOnFirstUse() {
+        // given
+        new LazyInitializationBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+        beanFactory.preInstantiateSingletons();
+
+        // when
+        var bean = beanFactory.getBean("first");
+
+        // then
+        assertThat(bean).isSameAs(beanFactory.getBean("first"));
+        assertThat(CREATED).hasValue(1);
+    }
+
+    static class Counted {
+
+        Counted() {
+            CREATED.incrementAndGet();
+        }
+    }
+}
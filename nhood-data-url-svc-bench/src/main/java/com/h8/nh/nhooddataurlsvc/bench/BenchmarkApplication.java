@@ -0,0 +1,62 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.DataUrlServiceApplication;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the service against a private in-memory H2 database and seeds it
+ * with a given number of entries. Settings are passed as command line
+ * arguments so they take precedence over application.yml; arguments given
+ * by a benchmark replace the defaults with the same name.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... args) {
+        var defaults = List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create");
+        var all = new ArrayList<String>();
+        defaults.stream()
+                .filter(l -> Arrays.stream(args).noneMatch(a -> a.startsWith(name(l))))
+                .forEach(all::add);
+        all.addAll(List.of(args));
+        return new SpringApplicationBuilder(DataUrlServiceApplication.class)
+                .run(all.toArray(new String[0]));
+    }
+
+    private static String name(String argument) {
+        return argument.substring(0, argument.indexOf('=') + 1);
+    }
+
+    static List<Long> seed(ConfigurableApplicationContext context, int size) {
+        var service = context.getBean(DataUrlService.class);
+        var entries = new ArrayList<DataUrl>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(entry(i));
+        }
+        var ids = new ArrayList<Long>(size);
+        service.createAll(entries).forEach(l -> ids.add(l.getId()));
+        return ids;
+    }
+
+    static DataUrl entry(int i) {
+        return DataUrl.builder()
+                .key(List.of("music", "artist-" + (i % 100), "track-" + i))
+                .url("http://localhost/data/music/" + i)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test of {@code GET /urls/{id}} on a few hot ids with
+ * the cache off, as right after a restart, with request coalescing off and
+ * on. Reports throughput, p50/p99 latency, and the database queries run
+ * against the requests served. Arguments: clients, seconds per run, hot ids.
+ */
+public final class DataUrlCoalescingTest {
+
+    private static final boolean[] COALESCING = {false, true};
+
+    private static final String CALLS = "data_url.single_flight.calls";
+
+    private static final String SHARED = "data_url.single_flight.shared";
+
+    private DataUrlCoalescingTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        var hot = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        var results = new ArrayList<String>();
+        for (var coalescing : COALESCING) {
+            results.add(run(coalescing, clients, seconds, hot));
+        }
+        System.out.printf("%nclients=%d seconds=%d hot ids=%d%n", clients, seconds, hot);
+        System.out.printf("%-10s %10s %8s %8s %10s %10s %8s%n",
+                "coalescing", "req/s", "p50 ms", "p99 ms", "requests", "queries", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(boolean coalescing, int clients, int seconds, int hot) throws Exception {
+        var context = BenchmarkApplication.start(
+                "--nhood.data-url.coalescing.enabled=" + coalescing,
+                "--nhood.data-url.cache.enabled=false",
+                "--server.tomcat.max-connections=" + (clients * 2));
+        try {
+            var ids = BenchmarkApplication.seed(context, hot);
+            var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            load(base, ids, clients, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5)));
+            var registry = context.getBean(MeterRegistry.class);
+            var before = queries(registry);
+            var clientResults = load(base, ids, clients, TimeUnit.SECONDS.toNanos(seconds));
+            var queries = queries(registry) - before;
+
+            var count = clientResults.stream().mapToInt(l -> l.count).sum();
+            var errors = clientResults.stream().mapToInt(l -> l.errors).sum();
+            var latencies = new long[count];
+            var offset = 0;
+            for (var client : clientResults) {
+                System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+                offset += client.count;
+            }
+            Arrays.sort(latencies);
+            return String.format("%-10s %10.0f %8.1f %8.1f %10d %10.0f %8d",
+                    coalescing ? "on" : "off", count / (double) seconds,
+                    percentile(latencies, 0.5), percentile(latencies, 0.99),
+                    count, queries, errors);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static double queries(MeterRegistry registry) {
+        return registry.get(CALLS).tag("method", "findById").counter().count()
+                - registry.get(SHARED).tag("method", "findById").counter().count();
+    }
+
+    private static List<Client> load(String base, List<Long> ids, int clients, long nanos)
+            throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(clients);
+        var result = new ArrayList<Client>(clients);
+        for (int i = 0; i < clients; i++) {
+            var client = new Client(base, ids);
+            result.add(client);
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    client.run(System.nanoTime() + nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Client {
+
+        private final String base;
+
+        private final List<Long> ids;
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int errors;
+
+        Client(String base, List<Long> ids) {
+            this.base = base;
+            this.ids = ids;
+        }
+
+        void run(long deadline) {
+            var buffer = new byte[8192];
+            while (System.nanoTime() < deadline) {
+                var id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                var started = System.nanoTime();
+                try {
+                    var connection = (HttpURLConnection) new URL(base + "/urls/" + id).openConnection();
+                    if (connection.getResponseCode() != 200) {
+                        errors++;
+                    }
+                    try (InputStream in = connection.getResponseCode() < 400
+                            ? connection.getInputStream()
+                            : connection.getErrorStream()) {
+                        while (in != null && in.read(buffer) >= 0) {
+                            // drain so the connection is reused
+                        }
+                    }
+                } catch (IOException e) {
+                    errors++;
+                }
+                record(System.nanoTime() - started);
+            }
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+}
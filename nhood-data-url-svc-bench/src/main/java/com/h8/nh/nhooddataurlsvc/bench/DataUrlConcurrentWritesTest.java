@@ -0,0 +1,115 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Concurrent writes to a few hot entries through the service, with striped
+ * locks held across the database write off and on. Runs blind updates, and
+ * read-modify-write updates at the read version that retry on a version
+ * conflict. Reports writes a second and the conflicts retried. Arguments:
+ * threads, writes per thread, hot entries.
+ */
+public final class DataUrlConcurrentWritesTest {
+
+    private static final boolean[] STRIPED_LOCKS = {false, true};
+
+    private DataUrlConcurrentWritesTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        var writes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        var hot = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        var results = new ArrayList<String>();
+        for (var stripedLocks : STRIPED_LOCKS) {
+            var context = BenchmarkApplication.start(
+                    "--nhood.data-url.concurrency.striped-locks=" + stripedLocks);
+            try {
+                var service = context.getBean(DataUrlService.class);
+                var ids = BenchmarkApplication.seed(context, hot);
+                var conflicts = new AtomicLong();
+
+                var blind = concurrently(threads, thread -> () -> {
+                    for (int i = 0; i < writes; i++) {
+                        var id = ids.get((thread + i) % ids.size());
+                        service.modify(id, DataUrl.builder()
+                                .key(List.of("hot", String.valueOf(id), "t" + thread + "-" + i))
+                                .url("url/" + thread + "/" + i)
+                                .build());
+                    }
+                    return null;
+                });
+                results.add(row("blind", stripedLocks, threads * writes, blind, 0));
+
+                var readModifyWrite = concurrently(threads, thread -> () -> {
+                    var id = ids.get(0);
+                    for (int i = 0; i < writes; i++) {
+                        while (true) {
+                            var version = service.findVersion(id).orElseThrow().getVersion();
+                            var current = service.findById(id).orElseThrow();
+                            try {
+                                service.modify(id, DataUrl.builder()
+                                        .key(current.getKey())
+                                        .url(current.getUrl() + "+")
+                                        .version(version)
+                                        .build());
+                                break;
+                            } catch (OptimisticLockingFailureException e) {
+                                conflicts.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                });
+                results.add(row("read-modify-write", stripedLocks, threads * writes,
+                        readModifyWrite, conflicts.get()));
+            } finally {
+                context.close();
+            }
+        }
+        System.out.printf("%nthreads=%d writes per thread=%d hot entries=%d%n", threads, writes, hot);
+        System.out.printf("%-18s %-13s %10s %10s%n", "workload", "striped locks", "writes/s", "conflicts");
+        results.forEach(System.out::println);
+    }
+
+    private static String row(String workload, boolean stripedLocks, int writes, double seconds, long conflicts) {
+        return String.format("%-18s %-13s %10.0f %10d",
+                workload, stripedLocks ? "on" : "off", writes / seconds, conflicts);
+    }
+
+    private static double concurrently(int threads, IntFunction<Callable<Void>> worker) throws Exception {
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var start = new CountDownLatch(1);
+            var tasks = new ArrayList<Future<Void>>();
+            for (int thread = 0; thread < threads; thread++) {
+                var task = worker.apply(thread);
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            var started = System.nanoTime();
+            start.countDown();
+            for (var task : tasks) {
+                task.get(10, TimeUnit.MINUTES);
+            }
+            return (System.nanoTime() - started) / 1e9;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataUrlControllerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mvc;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        ids = BenchmarkApplication.seed(context, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String findById() throws Exception {
+        var id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return mvc.perform(get("/urls/" + id))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+
+    @Benchmark
+    public String findPage() throws Exception {
+        var after = ids.get(ThreadLocalRandom.current().nextInt(ids.size())) - 1;
+        return mvc.perform(get("/urls").param("after", String.valueOf(after)).param("limit", "100"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String findAll() throws Exception {
+        var result = mvc.perform(get("/urls")).andReturn();
+        return mvc.perform(asyncDispatch(result))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+}
@@ -0,0 +1,84 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a generated dataset through {@code POST /urls/import}, then reads
+ * it back through {@code GET /urls/export}, and reports records per minute
+ * for both. The request body is generated while it is sent, so neither side
+ * holds the dataset. Arguments: dataset size, profiles to run.
+ */
+public final class DataUrlImportExportTest {
+
+    private DataUrlImportExportTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        var profiles = args.length > 1 ? args[1] : "default";
+        var context = BenchmarkApplication.start("--spring.profiles.active=" + profiles);
+        try {
+            var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            var started = System.nanoTime();
+            var response = importAll(base, size);
+            var imported = (System.nanoTime() - started) / 1e9;
+            System.out.printf("import: %d records in %.1f s, %.0f records/min, response %s%n",
+                    size, imported, size / imported * 60, response);
+
+            started = System.nanoTime();
+            var lines = exportAll(base);
+            var exported = (System.nanoTime() - started) / 1e9;
+            System.out.printf("export: %d records in %.1f s, %.0f records/min%n",
+                    lines, exported, lines / exported * 60);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String importAll(String base, int size) throws Exception {
+        var connection = (HttpURLConnection) new URL(base + "/urls/import").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(64 * 1024);
+        connection.setRequestProperty("Content-Type", DataUrlWireFormats.APPLICATION_NDJSON_VALUE);
+        try (var out = new BufferedWriter(new OutputStreamWriter(
+                connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < size; i++) {
+                var entry = BenchmarkApplication.entry(i);
+                out.write("{\"key\":[\"");
+                out.write(String.join("\",\"", entry.getKey()));
+                out.write("\"],\"url\":\"");
+                out.write(entry.getUrl());
+                out.write("\"}\n");
+            }
+        }
+        try (var in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static long exportAll(String base) throws Exception {
+        var connection = (HttpURLConnection) new URL(base + "/urls/export").openConnection();
+        var lines = 0L;
+        try (var in = new BufferedReader(new InputStreamReader(
+                connection.getInputStream(), StandardCharsets.UTF_8))) {
+            while (in.readLine() != null) {
+                lines++;
+            }
+        } finally {
+            connection.disconnect();
+        }
+        return lines;
+    }
+}
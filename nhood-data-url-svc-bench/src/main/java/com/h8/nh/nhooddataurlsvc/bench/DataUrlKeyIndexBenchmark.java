@@ -0,0 +1,77 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlKeyIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key tree lookups at up to millions of entries. Setup prints the heap the
+ * index takes per entry, measured as the difference in used heap after a
+ * full collection. Segment strings are shared with the keys the index is
+ * loaded from, so they are not counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DataUrlKeyIndexBenchmark {
+
+    @Param({"100000", "1000000", "3000000"})
+    private int size;
+
+    private DataUrlKeyIndex index;
+
+    private List<List<String>> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var entries = new HashMap<Long, List<String>>(size * 2);
+        for (int i = 0; i < size; i++) {
+            entries.put((long) i, BenchmarkApplication.entry(i).getKey());
+        }
+        keys = new ArrayList<>(entries.values());
+
+        var before = usedHeap();
+        index = new DataUrlKeyIndex();
+        index.putAll(entries);
+        var after = usedHeap();
+        System.out.printf("%nsize=%d index=%d MB, %d bytes per entry%n",
+                size, (after - before) / (1024 * 1024), (after - before) / size);
+    }
+
+    @Benchmark
+    public Object findByKey() {
+        return index.findByKey(key());
+    }
+
+    @Benchmark
+    public Object findLongestPrefix() {
+        var key = new ArrayList<>(key());
+        key.add("unknown");
+        return index.findLongestPrefix(key);
+    }
+
+    @Benchmark
+    public Object findNode() {
+        return index.findNode(key());
+    }
+
+    private List<String> key() {
+        return keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,161 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.execution.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test comparing the platform and virtual execution
+ * modes. Each client sends uncached page requests back to back, so requests
+ * queue on the database. Arguments: clients, seconds per run, dataset size.
+ */
+public final class DataUrlLoadTest {
+
+    private static final String[] MODES = {"platform", "virtual"};
+
+    private static final int PAGE_LIMIT = 20;
+
+    private DataUrlLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        var size = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        var results = new ArrayList<String>();
+        for (var mode : MODES) {
+            if (mode.equals("virtual") && !VirtualThreads.isSupported()) {
+                results.add(String.format("%-9s skipped, virtual threads need Java 21+", mode));
+                continue;
+            }
+            results.add(run(mode, clients, seconds, size));
+        }
+        System.out.printf("%nclients=%d seconds=%d size=%d%n", clients, seconds, size);
+        System.out.printf("%-9s %10s %8s %8s %8s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(String mode, int clients, int seconds, int size) throws Exception {
+        var context = BenchmarkApplication.start(
+                "--nhood.data-url.execution.mode=" + mode,
+                "--nhood.data-url.cache.enabled=false",
+                "--server.tomcat.max-connections=" + (clients * 2));
+        try {
+            var ids = BenchmarkApplication.seed(context, size);
+            var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            load(base, ids, clients, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5)));
+            var clientResults = load(base, ids, clients, TimeUnit.SECONDS.toNanos(seconds));
+
+            var count = clientResults.stream().mapToInt(l -> l.count).sum();
+            var errors = clientResults.stream().mapToInt(l -> l.errors).sum();
+            var latencies = new long[count];
+            var offset = 0;
+            for (var client : clientResults) {
+                System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+                offset += client.count;
+            }
+            Arrays.sort(latencies);
+            return String.format("%-9s %10.0f %8.1f %8.1f %8.1f %8d",
+                    mode, count / (double) seconds,
+                    percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    errors);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static List<Client> load(String base, List<Long> ids, int clients, long nanos)
+            throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(clients);
+        var result = new ArrayList<Client>(clients);
+        for (int i = 0; i < clients; i++) {
+            var client = new Client(base, ids);
+            result.add(client);
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    client.run(System.nanoTime() + nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Client {
+
+        private final String base;
+
+        private final List<Long> ids;
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int errors;
+
+        Client(String base, List<Long> ids) {
+            this.base = base;
+            this.ids = ids;
+        }
+
+        void run(long deadline) {
+            var buffer = new byte[8192];
+            while (System.nanoTime() < deadline) {
+                var after = ids.get(ThreadLocalRandom.current().nextInt(ids.size())) - 1;
+                var started = System.nanoTime();
+                try {
+                    var connection = (HttpURLConnection) new URL(
+                            base + "/urls?after=" + after + "&limit=" + PAGE_LIMIT).openConnection();
+                    if (connection.getResponseCode() != 200) {
+                        errors++;
+                    }
+                    try (InputStream in = connection.getResponseCode() < 400
+                            ? connection.getInputStream()
+                            : connection.getErrorStream()) {
+                        while (in != null && in.read(buffer) >= 0) {
+                            // drain so the connection is reused
+                        }
+                    }
+                } catch (IOException e) {
+                    errors++;
+                }
+                record(System.nanoTime() - started);
+            }
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+}
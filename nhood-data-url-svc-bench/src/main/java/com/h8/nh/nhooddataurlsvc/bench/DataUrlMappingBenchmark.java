@@ -0,0 +1,59 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.dto.request.DataUrlRequestDTO;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataUrlMappingBenchmark {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private DataUrl entry;
+
+    private DataUrlRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        entry = DataUrl.builder()
+                .id(1L)
+                .key(List.of("KEY1.1", "KEY1.2", "KEY1.3"))
+                .url("http://localhost/data/1")
+                .build();
+
+        request = new DataUrlRequestDTO();
+        request.setKey(List.of("KEY1.1", "KEY1.2", "KEY1.3"));
+        request.setUrl("http://localhost/data/1");
+    }
+
+    @Benchmark
+    public DataUrlResponseDTO modelMapperToResponseDTO() {
+        return modelMapper.map(entry, DataUrlResponseDTO.class);
+    }
+
+    @Benchmark
+    public DataUrlResponseDTO dataUrlMapperToResponseDTO() {
+        return DataUrlMapper.toResponseDTO(entry);
+    }
+
+    @Benchmark
+    public DataUrl modelMapperToDataUrl() {
+        return modelMapper.map(request, DataUrl.class);
+    }
+
+    @Benchmark
+    public DataUrl dataUrlMapperToDataUrl() {
+        return DataUrlMapper.toDataUrl(request);
+    }
+}
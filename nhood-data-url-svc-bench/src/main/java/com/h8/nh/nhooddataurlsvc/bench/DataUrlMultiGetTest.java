@@ -0,0 +1,88 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves random sets of ids over HTTP, once with one
+ * {@code GET /urls/{id}} per id and once with a single
+ * {@code GET /urls?ids=}, with the cache off and on. Reports sets and ids
+ * resolved per second. Arguments: ids per set, seconds per run, entries.
+ */
+public final class DataUrlMultiGetTest {
+
+    private static final boolean[] CACHE = {false, true};
+
+    private DataUrlMultiGetTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        var entries = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        var results = new ArrayList<String>();
+        for (var cache : CACHE) {
+            var context = BenchmarkApplication.start("--nhood.data-url.cache.enabled=" + cache);
+            try {
+                var ids = BenchmarkApplication.seed(context, entries);
+                var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                for (var multiGet : new boolean[]{false, true}) {
+                    run(base, ids, size, multiGet, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5)));
+                    var sets = run(base, ids, size, multiGet, TimeUnit.SECONDS.toNanos(seconds));
+                    results.add(String.format("%-6s %-10s %10.1f %10.0f",
+                            cache ? "on" : "off", multiGet ? "multi-get" : "single",
+                            sets / (double) seconds, sets * size / (double) seconds));
+                }
+            } finally {
+                context.close();
+            }
+        }
+        System.out.printf("%nids per set=%d seconds=%d entries=%d%n", size, seconds, entries);
+        System.out.printf("%-6s %-10s %10s %10s%n", "cache", "requests", "sets/s", "ids/s");
+        results.forEach(System.out::println);
+    }
+
+    private static long run(String base, List<Long> ids, int size, boolean multiGet, long nanos)
+            throws IOException {
+        var deadline = System.nanoTime() + nanos;
+        var sets = 0L;
+        while (System.nanoTime() < deadline) {
+            var set = new ArrayList<Long>(size);
+            for (int i = 0; i < size; i++) {
+                set.add(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+            }
+            if (multiGet) {
+                get(base + "/urls?ids=" + set.stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")));
+            } else {
+                for (var id : set) {
+                    get(base + "/urls/" + id);
+                }
+            }
+            sets++;
+        }
+        return sets;
+    }
+
+    private static void get(String url) throws IOException {
+        var connection = (HttpURLConnection) new URL(url).openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException(url + " answered " + connection.getResponseCode());
+        }
+        var buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read(buffer) >= 0) {
+                // drain so the connection is reused
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.caches.DataUrlCache;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlCacheProperties;
+import com.h8.nh.nhooddataurlsvc.configuration.DataUrlReplicaProperties;
+import com.h8.nh.nhooddataurlsvc.domain.DataUrlVersion;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlVersionIndex;
+import com.h8.nh.nhooddataurlsvc.replicas.DataUrlReplicaStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Reads by id from the off-heap read replica against the on-heap cache of
+ * response DTOs it replaces, with every entry resident in both. Setup prints
+ * the heap and direct memory taken per entry and how long a full collection
+ * takes with the entries loaded; run with {@code -prof gc} for the
+ * allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class DataUrlReplicaStoreBenchmark {
+
+    @Param({"replica", "cache"})
+    private String store;
+
+    @Param({"1000000", "3000000"})
+    private int size;
+
+    private LongFunction<Optional<DataUrlResponseDTO>> finder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the version index the cache checks is kept in both modes, so it
+        // is filled before the heap is measured
+        var versions = new DataUrlVersionIndex();
+        for (int i = 0; i < size; i++) {
+            versions.put(new DataUrlVersion((long) i, 0, Instant.EPOCH));
+        }
+        var before = usedHeap();
+        var start = System.nanoTime();
+        long offHeap;
+        if ("replica".equals(store)) {
+            var properties = new DataUrlReplicaProperties();
+            properties.setEnabled(true);
+            var replica = new DataUrlReplicaStore(properties, new SimpleMeterRegistry());
+            for (int i = 0; i < size; i++) {
+                var entry = BenchmarkApplication.entry(i);
+                replica.put((long) i, entry.getKey(), entry.getUrl());
+            }
+            offHeap = replica.offHeapBytes();
+            finder = replica::find;
+        } else {
+            var properties = new DataUrlCacheProperties();
+            properties.setMaximumSize(size);
+            var cache = new DataUrlCache(properties, versions, new SimpleMeterRegistry());
+            for (int i = 0; i < size; i++) {
+                var entry = BenchmarkApplication.entry(i);
+                var dto = new DataUrlResponseDTO();
+                dto.setId((long) i);
+                dto.setKey(new ArrayList<>(entry.getKey()));
+                dto.setUrl(entry.getUrl());
+                cache.get(dto.getId(), k -> Optional.of(dto));
+            }
+            offHeap = 0;
+            finder = id -> cache.get(id, k -> Optional.empty());
+        }
+        var loaded = System.nanoTime() - start;
+        var heap = usedHeap() - before;
+        System.out.printf("%nstore=%s size=%d load=%d ms heap=%d B/entry off-heap=%d B/entry full gc=%d ms%n",
+                store, size, TimeUnit.NANOSECONDS.toMillis(loaded), heap / size, offHeap / size, fullGcMillis());
+    }
+
+    @Benchmark
+    public Object findById() {
+        return finder.apply(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Time of one explicit full collection as reported by the collectors,
+     * which is dominated by marking whatever is live on the heap.
+     */
+    private static long fullGcMillis() {
+        var before = gcMillis();
+        System.gc();
+        return gcMillis() - before;
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+}
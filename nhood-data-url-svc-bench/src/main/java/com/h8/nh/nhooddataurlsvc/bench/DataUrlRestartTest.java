@@ -0,0 +1,97 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.domain.DataUrl;
+import com.h8.nh.nhooddataurlsvc.indexes.DataUrlKeyIndex;
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long the service takes to come back up on persistent
+ * storage. Seeds a database directory once, then restarts on it and reports
+ * startup time, which includes rebuilding the in-memory indexes, and the
+ * time of a full scan through {@code GET /urls}. The rows of each table are
+ * reported after seeding. Arguments: dataset size, restarts, storage
+ * directory.
+ */
+public final class DataUrlRestartTest {
+
+    private static final int SEED_CHUNK = 100_000;
+
+    private DataUrlRestartTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        var restarts = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        var path = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("data-url-restart");
+
+        var seeded = System.nanoTime();
+        var context = start(path);
+        String rows;
+        try {
+            var service = context.getBean(DataUrlService.class);
+            var existing = context.getBean(DataUrlKeyIndex.class).size();
+            for (int from = existing; from < size; from += SEED_CHUNK) {
+                var entries = new ArrayList<DataUrl>(SEED_CHUNK);
+                for (int i = from; i < Math.min(from + SEED_CHUNK, size); i++) {
+                    entries.add(BenchmarkApplication.entry(i));
+                }
+                service.createAll(entries);
+            }
+            rows = rows(context);
+        } finally {
+            context.close();
+        }
+        System.out.printf("seeded %d entries in %.1f s, %d MB on disk, rows %s%n",
+                size, (System.nanoTime() - seeded) / 1e9, sizeOnDisk(path) / (1024 * 1024), rows);
+
+        for (int i = 0; i < restarts; i++) {
+            var started = System.nanoTime();
+            context = start(path);
+            var seconds = (System.nanoTime() - started) / 1e9;
+            var rebuilt = System.nanoTime();
+            context.getBean(DataUrlService.class).rebuildIndexes();
+            var rebuild = (System.nanoTime() - rebuilt) / 1e9;
+            var entries = context.getBean(DataUrlKeyIndex.class).size();
+            var scanned = System.nanoTime();
+            context.getBean(DataUrlService.class).findAll(l -> { });
+            var scan = (System.nanoTime() - scanned) / 1e9;
+            context.close();
+            System.out.printf("restart %d: %d entries indexed, up in %.1f s, index rebuild alone %.1f s, full scan %.1f s%n",
+                    i + 1, entries, seconds, rebuild, scan);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Path path) {
+        return BenchmarkApplication.start(
+                "--spring.profiles.active=persistent",
+                "--spring.datasource.url=${nhood.data-url.storage.url}",
+                "--nhood.data-url.storage.path=" + path.toAbsolutePath(),
+                "--spring.jpa.hibernate.ddl-auto=update");
+    }
+
+    private static String rows(ConfigurableApplicationContext context) {
+        var rows = new TreeMap<String, Long>();
+        context.getBean(JdbcTemplate.class).query(
+                "select table_name, row_count_estimate from information_schema.tables where table_schema = 'PUBLIC'",
+                (RowCallbackHandler) rs -> rows.put(rs.getString(1).toLowerCase(), rs.getLong(2)));
+        return rows.toString();
+    }
+
+    private static long sizeOnDisk(Path path) throws Exception {
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(l -> l.toFile().length())
+                    .sum();
+        }
+    }
+}
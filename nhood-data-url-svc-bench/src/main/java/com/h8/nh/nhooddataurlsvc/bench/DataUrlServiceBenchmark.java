@@ -0,0 +1,70 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.services.DataUrlService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataUrlServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private ConfigurableApplicationContext context;
+
+    private DataUrlService service;
+
+    private List<Long> ids;
+
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "--nhood.data-url.cache.enabled=" + cacheEnabled);
+        service = context.getBean(DataUrlService.class);
+        ids = BenchmarkApplication.seed(context, size);
+        created = size;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object findById() {
+        var id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return service.findById(id);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void findAll(Blackhole blackhole) {
+        service.findAll(blackhole::consume);
+    }
+
+    @Benchmark
+    public Object findPage() {
+        var after = ids.get(ThreadLocalRandom.current().nextInt(ids.size())) - 1;
+        return service.findPage(after, 100);
+    }
+
+    @Benchmark
+    public Object create() {
+        return service.create(BenchmarkApplication.entry(created++));
+    }
+}
@@ -0,0 +1,107 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cold start: the time from launching the packaged application in
+ * a new JVM to the first {@code GET /urls} it answers. Compares the default
+ * setup with the {@code startup} profile, and with the class data sharing
+ * archive when the application was built with {@code -Pcds}. Arguments:
+ * runs per setup, path of the executable jar.
+ */
+public final class DataUrlStartupTest {
+
+    private static final long TIMEOUT = TimeUnit.MINUTES.toNanos(2);
+
+    private DataUrlStartupTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        var jar = Paths.get(args.length > 1
+                ? args[1]
+                : "nhood-data-url-svc-app/target/nhood-data-url-svc-app-0.0.1-SNAPSHOT-exec.jar");
+        var archive = jar.resolveSibling("nhood-data-url-svc-app.jsa");
+
+        var setups = new LinkedHashMap<String, List<String>>();
+        setups.put("default", List.of());
+        setups.put("startup", List.of("startup"));
+        if (Files.exists(archive)) {
+            setups.put("startup+cds", List.of("-XX:SharedArchiveFile=" + archive, "startup"));
+        }
+
+        var results = new ArrayList<String>();
+        for (var setup : setups.entrySet()) {
+            var millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = TimeUnit.NANOSECONDS.toMillis(run(jar, setup.getValue()));
+            }
+            Arrays.sort(millis);
+            results.add(String.format("%-12s %8d %8d %8d", setup.getKey(), millis[0], millis[runs / 2], millis[runs - 1]));
+        }
+        System.out.printf("%nruns=%d jar=%s%n", runs, jar);
+        System.out.printf("%-12s %8s %8s %8s%n", "setup", "min ms", "p50 ms", "max ms");
+        results.forEach(System.out::println);
+        if (!Files.exists(archive)) {
+            System.out.println("no class data sharing archive, build with -Pcds to include it");
+        }
+    }
+
+    private static long run(Path jar, List<String> setup) throws Exception {
+        var port = freePort();
+        var command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        setup.stream().filter(l -> l.startsWith("-")).forEach(command::add);
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port, "--logging.level.root=warn"));
+        command.add("--spring.profiles.active=local" + (setup.contains("startup") ? ",startup" : ""));
+
+        var started = System.nanoTime();
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            var url = new URL("http://localhost:" + port + "/urls");
+            while (!served(url)) {
+                if (!process.isAlive() || System.nanoTime() - started > TIMEOUT) {
+                    throw new IllegalStateException("Application did not start: " + command);
+                }
+                Thread.sleep(5);
+            }
+            return System.nanoTime() - started;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static boolean served(URL url) {
+        try {
+            var connection = (HttpURLConnection) url.openConnection();
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.h8.nh.nhooddataurlsvc.dto.response.DataUrlResponseDTO;
+import com.h8.nh.nhooddataurlsvc.mappers.DataUrlWireFormats;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization cost of response lists per wire format, with and without
+ * gzip. Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataUrlWireFormatBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int size;
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private JavaType listType;
+
+    private List<DataUrlResponseDTO> dtos;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = "smile".equals(format)
+                ? new ObjectMapper(DataUrlWireFormats.smileFactory())
+                : new ObjectMapper();
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, DataUrlResponseDTO.class);
+        dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            var entry = BenchmarkApplication.entry(i);
+            var dto = new DataUrlResponseDTO();
+            dto.setId((long) i);
+            dto.setKey(entry.getKey());
+            dto.setUrl(entry.getUrl());
+            dtos.add(dto);
+        }
+        encoded = serializeList();
+        System.out.printf("%n%s, %d entries: %d bytes, %d bytes gzipped%n",
+                format, size, encoded.length, serializeListGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] serializeListGzipped() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, dtos);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<DataUrlResponseDTO> deserializeList() throws IOException {
+        return objectMapper.readValue(encoded, listType);
+    }
+}
@@ -0,0 +1,177 @@
+package com.h8.nh.nhooddataurlsvc.bench;
+
+import com.h8.nh.nhooddataurlsvc.buffers.DataUrlWriteBuffer;
+import com.h8.nh.nhooddataurlsvc.repositories.DataUrlRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop HTTP load test of {@code POST /urls} with write-behind off and
+ * on. Each client registers new entries back to back. Reports throughput,
+ * p50/p99/p99.9 latency, and the rows stored once the buffer has drained.
+ * Arguments: clients, seconds per run.
+ */
+public final class DataUrlWriteBehindTest {
+
+    private static final boolean[] WRITE_BEHIND = {false, true};
+
+    private DataUrlWriteBehindTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        var results = new ArrayList<String>();
+        for (var writeBehind : WRITE_BEHIND) {
+            results.add(run(writeBehind, clients, seconds));
+        }
+        System.out.printf("%nclients=%d seconds=%d%n", clients, seconds);
+        System.out.printf("%-12s %10s %8s %8s %8s %8s %10s%n",
+                "write-behind", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors", "stored");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(boolean writeBehind, int clients, int seconds) throws Exception {
+        var context = BenchmarkApplication.start(
+                "--nhood.data-url.write-behind.enabled=" + writeBehind,
+                "--server.tomcat.max-connections=" + (clients * 2));
+        try {
+            var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            var sequence = new AtomicInteger();
+            load(base, sequence, clients, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5)));
+            var repository = context.getBean(DataUrlRepository.class);
+            var buffer = context.getBean(DataUrlWriteBuffer.class);
+            awaitDrained(buffer);
+            var before = repository.count();
+            var clientResults = load(base, sequence, clients, TimeUnit.SECONDS.toNanos(seconds));
+            awaitDrained(buffer);
+
+            var count = clientResults.stream().mapToInt(l -> l.count).sum();
+            var errors = clientResults.stream().mapToInt(l -> l.errors).sum();
+            var latencies = new long[count];
+            var offset = 0;
+            for (var client : clientResults) {
+                System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+                offset += client.count;
+            }
+            Arrays.sort(latencies);
+            return String.format("%-12s %10.0f %8.1f %8.1f %8.1f %8d %10d",
+                    writeBehind ? "on" : "off", count / (double) seconds,
+                    percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    errors, repository.count() - before);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void awaitDrained(DataUrlWriteBuffer buffer) throws InterruptedException {
+        while (buffer.size() > 0) {
+            Thread.sleep(10);
+        }
+        // the batch drained last may still be in its transaction
+        Thread.sleep(500);
+    }
+
+    private static List<Client> load(String base, AtomicInteger sequence, int clients, long nanos)
+            throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(clients);
+        var result = new ArrayList<Client>(clients);
+        for (int i = 0; i < clients; i++) {
+            var client = new Client(base, sequence);
+            result.add(client);
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    client.run(System.nanoTime() + nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Client {
+
+        private final String base;
+
+        private final AtomicInteger sequence;
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int errors;
+
+        Client(String base, AtomicInteger sequence) {
+            this.base = base;
+            this.sequence = sequence;
+        }
+
+        void run(long deadline) {
+            var buffer = new byte[1024];
+            while (System.nanoTime() < deadline) {
+                var entry = BenchmarkApplication.entry(sequence.getAndIncrement());
+                var body = ("{\"key\":[\"" + String.join("\",\"", entry.getKey()) + "\"],\"url\":\""
+                        + entry.getUrl() + "\"}").getBytes(StandardCharsets.UTF_8);
+                var started = System.nanoTime();
+                try {
+                    var connection = (HttpURLConnection) new URL(base + "/urls").openConnection();
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty("Content-Type", "application/json");
+                    try (var out = connection.getOutputStream()) {
+                        out.write(body);
+                    }
+                    if (connection.getResponseCode() != 201 || connection.getHeaderField("Location") == null) {
+                        errors++;
+                    }
+                    try (InputStream in = connection.getResponseCode() < 400
+                            ? connection.getInputStream()
+                            : connection.getErrorStream()) {
+                        while (in != null && in.read(buffer) >= 0) {
+                            // drain so the connection is reused
+                        }
+                    }
+                } catch (IOException e) {
+                    errors++;
+                }
+                record(System.nanoTime() - started);
+            }
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.h8.nh.nhooddataurlsvc.dto.request;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class DataUrlModifyRequestDTO extends DataUrlRequestDTO {
+
+    @NotNull
+    private Long id;
+}
@@ -2,6 +2,7 @@ package com.h8.nh.nhooddataurlsvc.dto.request;
 
 import lombok.Data;
 
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -12,7 +13,7 @@ public class DataUrlRequestDTO {
 
     @NotNull
     @NotEmpty
-    private List<String> key;
+    private List<@NotBlank @Size(max=255, message="Key segments should not be longer than 255 characters") String> key;
 
     @NotNull
     @Size(max=200, message="Field 'url' should not be longer than 200 characters")
@@ -0,0 +1,13 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataUrlBatchReadResponseDTO {
+
+    private List<DataUrlResponseDTO> urls;
+    private List<Long> notFound;
+    private List<String> errors;
+}
@@ -0,0 +1,13 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataUrlBatchResponseDTO {
+
+    private List<Long> ids;
+    private List<Long> notFound;
+    private List<String> errors;
+}
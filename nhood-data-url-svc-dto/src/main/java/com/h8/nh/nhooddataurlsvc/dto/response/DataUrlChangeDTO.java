@@ -0,0 +1,16 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataUrlChangeDTO {
+
+    private Long sequence;
+    private String type;
+    private Long id;
+    private List<String> key;
+    private String url;
+    private Long version;
+}
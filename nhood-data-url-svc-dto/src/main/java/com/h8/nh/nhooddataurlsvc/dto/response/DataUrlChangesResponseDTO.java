@@ -0,0 +1,12 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataUrlChangesResponseDTO {
+
+    private List<DataUrlChangeDTO> changes;
+    private Long sequence;
+}
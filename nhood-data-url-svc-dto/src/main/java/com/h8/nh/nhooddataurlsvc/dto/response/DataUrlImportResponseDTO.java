@@ -0,0 +1,13 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataUrlImportResponseDTO {
+
+    private long imported;
+    private long failed;
+    private List<String> errors;
+}
@@ -0,0 +1,15 @@
+package com.h8.nh.nhooddataurlsvc.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class DataUrlTreeResponseDTO {
+
+    private List<String> key;
+    private List<DataUrlResponseDTO> entries;
+    private Map<String, Integer> children;
+    private Integer size;
+}